@@ -2,90 +2,227 @@ package engine;
 
 import engine.input.MouseInput;
 
+import java.util.concurrent.locks.LockSupport;
+
 public class Engine implements Runnable {
 
     public static final int FPS = 60;
     public static final int UPS = 30;
+    public static final int MAX_UPDATE_STEPS = 5;
     private final Window window;
     private final Thread gameLoopThread;
+    private final Thread simulationThread;
     private final IGameLogic gameLogic;
     private final Timer timer;
+    private final SimulationClock clock;
     private final MouseInput mouseInput;
+    private final SnapshotBuffer snapshots;
+    private final EngineMetrics metrics;
+    private final FramePacer framePacer;
+    private final boolean headless;
+
+    private volatile boolean running;
+    private long maxTicks;
+    private boolean printMetrics;
+    private int maxUpdateSteps = MAX_UPDATE_STEPS;
 
     public Engine(String title, int width, int height, boolean vSync, IGameLogic gameLogic) {
         window = new Window(title, width, height, vSync);
         gameLoopThread = new Thread(this, "GAME_LOOP_THREAD");
+        simulationThread = new Thread(this::runSimulation, "SIMULATION_THREAD");
+        this.gameLogic = gameLogic;
+        timer = new Timer();
+        clock = new SimulationClock(UPS);
+        mouseInput = new MouseInput();
+        snapshots = new SnapshotBuffer();
+        metrics = new EngineMetrics();
+        framePacer = new FramePacer(FPS);
+        headless = false;
+    }
+
+    /**
+     * Create a headless engine. It has no window and never renders, it only runs
+     * the fixed step update of the game logic as fast as possible.
+     * @param gameLogic game logic, has to support {@link IGameLogic#initHeadless()}
+     */
+    public Engine(IGameLogic gameLogic) {
+        window = null;
+        gameLoopThread = new Thread(this, "GAME_LOOP_THREAD");
+        simulationThread = null;
         this.gameLogic = gameLogic;
         timer = new Timer();
+        clock = new SimulationClock(UPS);
         mouseInput = new MouseInput();
+        snapshots = null;
+        metrics = new EngineMetrics();
+        framePacer = new FramePacer(FPS);
+        headless = true;
     }
 
     public void start() {
+        running = true;
         String os = System.getProperty("os.name");
-        if (os.contains("Mac")) {
+        if (os.contains("Mac") && !headless) {
             gameLoopThread.run();
         } else {
             gameLoopThread.start();
         }
     }
 
+    public void stop() {
+        running = false;
+    }
+
     @Override
     public void run() {
         try {
             init();
-            gameLoop();
+            if (headless) {
+                headlessLoop();
+            } else {
+                gameLoop();
+            }
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
+            stopSimulation();
             cleanup();
         }
     }
 
     protected void init() throws Exception {
-        window.init();
         timer.init();
-        gameLogic.init(window);
-        mouseInput.init(window);
+        gameLogic.setClock(clock);
+        if (headless) {
+            gameLogic.initHeadless();
+        } else {
+            window.init();
+            gameLogic.init(window);
+            mouseInput.init(window);
+            // the renderer needs a snapshot before the first tick finished
+            publishSnapshot(0);
+        }
+        gameLogic.registerMetrics(metrics);
     }
 
+    /**
+     * Render loop, runs on the thread that owns the window and the OpenGL context.
+     * The simulation runs on its own thread and hands over its state through snapshots.
+     */
     protected void gameLoop() {
-        float elapsedTime;
-        float accumulator = 0f;
-        float interval = 1f / UPS;
+        simulationThread.start();
+        framePacer.start();
 
-        boolean running = true;
         while (running && !window.windowShouldClose()) {
-            elapsedTime = timer.getElapsedTime();
-            accumulator += elapsedTime;
-
-            input();
-
-            while (accumulator >= interval) {
-                update(interval);
-                accumulator -= interval;
-            }
+            long frameStart = System.nanoTime();
 
             render();
 
+            metrics.recordFrame(System.nanoTime() - frameStart);
+            metrics.updateRates(System.nanoTime());
+
             if (!window.isvSync()) {
                 sync();
             }
         }
     }
 
-    private void sync() {
-        float loopSlot = 1f / FPS;
-        double endTime = timer.getLastLoopTime() + loopSlot;
-        while (timer.getTime() < endTime) {
+    /**
+     * Fixed step update loop of the simulation thread. Input is sampled once per loop iteration
+     * that has at least one step due, so input handling runs at the update rate.
+     * At most {@link #setMaxUpdateSteps(int) maxUpdateSteps} steps run per iteration, time beyond
+     * that is dropped, so one slow step cannot make the simulation fall further and further behind.
+     */
+    private void runSimulation() {
+        try {
+            long accumulator = 0;
+            long interval = clock.getTickNanos();
+            timer.init();
+
+            while (running) {
+                accumulator += timer.getElapsedTime();
+
+                if (accumulator >= interval) {
+                    long inputStart = System.nanoTime();
+                    input();
+                    metrics.recordInput(System.nanoTime() - inputStart);
+                    accumulator = updateSteps(accumulator, interval, maxUpdateSteps);
+                    if (accumulator >= interval) {
+                        metrics.recordDroppedTicks(accumulator / interval);
+                        accumulator %= interval;
+                    }
+                    publishSnapshot(accumulator);
+                } else {
+                    LockSupport.parkNanos(interval - accumulator);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            running = false;
+        }
+    }
+
+    private void stopSimulation() {
+        running = false;
+        if (simulationThread != null && simulationThread.isAlive()) {
             try {
-                Thread.sleep(1);
+                simulationThread.join();
             } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Run the simulation without window, input and rendering. Every iteration feeds exactly
+     * one fixed step into the accumulator, so the game logic sees the same intervals as in
+     * the windowed loop, but the loop never waits for the wall clock.
+     */
+    protected void headlessLoop() {
+        long accumulator = 0;
+        long interval = clock.getTickNanos();
+
+        while (running && (maxTicks <= 0 || metrics.getTicks() < maxTicks)) {
+            accumulator += interval;
+            accumulator = updateSteps(accumulator, interval, Integer.MAX_VALUE);
+
+            if (metrics.updateRates(System.nanoTime()) && printMetrics) {
+                System.out.println("Ticks per second: " + metrics.getTicksPerSecond());
             }
         }
+        if (printMetrics) {
+            System.out.println(metrics);
+        }
+    }
+
+    private long updateSteps(long accumulator, long interval, int maxSteps) {
+        float intervalSeconds = interval / 1_000_000_000f;
+        for (int step = 0; step < maxSteps && accumulator >= interval; step++) {
+            long tickStart = System.nanoTime();
+            update(intervalSeconds);
+            clock.advance();
+            metrics.recordTick(System.nanoTime() - tickStart);
+            accumulator -= interval;
+        }
+        return accumulator;
+    }
+
+    private void publishSnapshot(long accumulator) {
+        RenderSnapshot snapshot = snapshots.getWriteSnapshot();
+        snapshot.clear();
+        snapshot.setTick(clock.getTick(), System.nanoTime(), accumulator);
+        gameLogic.snapshot(snapshot);
+        snapshots.publish();
+    }
+
+    // wait for the start of the next frame slot, see FramePacer
+    private void sync() {
+        metrics.recordFrameMiss(framePacer.sync());
     }
 
 
     protected void input() {
+        // reads the key and cursor state the render thread sampled after its last poll, never glfw itself
         mouseInput.input(window);
         gameLogic.input(window, mouseInput);
     }
@@ -95,11 +232,73 @@ public class Engine implements Runnable {
     }
 
     protected void render() {
-        gameLogic.render(window);
+        long renderStart = System.nanoTime();
+        RenderSnapshot snapshot = snapshots.getLatest();
+        gameLogic.render(window, snapshot, interpolationAlpha(snapshot));
+        metrics.recordRender(System.nanoTime() - renderStart);
         window.update();
+        mouseInput.sample();
+    }
+
+    /**
+     * Calculate how far the render time is between the previous and the current tick of a snapshot,
+     * from the time left in the accumulator plus the time passed since the snapshot was published.
+     */
+    private float interpolationAlpha(RenderSnapshot snapshot) {
+        long pending = snapshot.getAccumulator() + System.nanoTime() - snapshot.getTime();
+        return Math.min((float) pending / clock.getTickNanos(), 1f);
     }
 
     protected void cleanup() {
         gameLogic.cleanup();
     }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Limit the amount of ticks a headless engine runs before it stops by itself.
+     * @param maxTicks amount of ticks, 0 or less runs until {@link #stop()} is called
+     */
+    public void setMaxTicks(long maxTicks) {
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Print the ticks per second of a headless run once a second and all metrics when it ends.
+     * Off by default, the numbers are always available through {@link #getMetrics()}.
+     * @param printMetrics true to print to standard out
+     */
+    public void setPrintMetrics(boolean printMetrics) {
+        this.printMetrics = printMetrics;
+    }
+
+    /**
+     * Set the frame rate the render loop is paced to when v-sync is off.
+     * @param targetFps frames per second
+     */
+    public void setTargetFps(int targetFps) {
+        framePacer.setTargetFps(targetFps);
+    }
+
+    public int getTargetFps() {
+        return framePacer.getTargetFps();
+    }
+
+    /**
+     * Limit the update steps that may run to catch up before the next snapshot is published.
+     * @param maxUpdateSteps maximum amount of steps per simulation loop iteration
+     */
+    public void setMaxUpdateSteps(int maxUpdateSteps) {
+        this.maxUpdateSteps = maxUpdateSteps;
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
 }
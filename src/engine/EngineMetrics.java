@@ -0,0 +1,210 @@
+package engine;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Timings of the simulation and the render loop. Every value has exactly one writing thread,
+ * but can be read from any thread. Besides the engine phases, game logic can register
+ * histograms of its own systems.
+ */
+public class EngineMetrics {
+
+    private volatile long ticks;
+    private volatile long frames;
+    private volatile long lastTickTime;
+    private volatile long lastFrameTime;
+    private volatile float ticksPerSecond;
+    private volatile float framesPerSecond;
+    private volatile long droppedTicks;
+
+    private long rateTicks;
+    private long rateFrames;
+    private long rateTime;
+
+    private final TimingHistogram inputTimes;
+    private final TimingHistogram tickTimes;
+    private final TimingHistogram renderTimes;
+    private final TimingHistogram frameTimes;
+    private final TimingHistogram frameMisses;
+    private final List<TimingHistogram> histograms;
+
+    public EngineMetrics() {
+        inputTimes = new TimingHistogram("input");
+        tickTimes = new TimingHistogram("update");
+        renderTimes = new TimingHistogram("render");
+        frameTimes = new TimingHistogram("frame");
+        frameMisses = new TimingHistogram("frame miss");
+        histograms = new CopyOnWriteArrayList<>();
+        histograms.add(inputTimes);
+        histograms.add(tickTimes);
+        histograms.add(renderTimes);
+        histograms.add(frameTimes);
+        histograms.add(frameMisses);
+    }
+
+    /**
+     * Record the input phase of the simulation loop.
+     * @param nanos duration of the phase in nanoseconds
+     */
+    public void recordInput(long nanos) {
+        inputTimes.record(nanos);
+    }
+
+    /**
+     * Record a finished update step.
+     * @param nanos duration of the step in nanoseconds
+     */
+    public void recordTick(long nanos) {
+        lastTickTime = nanos;
+        tickTimes.record(nanos);
+        ticks++;
+    }
+
+    /**
+     * Record the render phase of a frame, without waiting for the buffer swap.
+     * @param nanos duration of the phase in nanoseconds
+     */
+    public void recordRender(long nanos) {
+        renderTimes.record(nanos);
+    }
+
+    /**
+     * Record a finished frame.
+     * @param nanos duration of the frame in nanoseconds
+     */
+    public void recordFrame(long nanos) {
+        lastFrameTime = nanos;
+        frameTimes.record(nanos);
+        frames++;
+    }
+
+    /**
+     * Record how late a paced frame started compared to its deadline.
+     * @param nanos delay in nanoseconds
+     */
+    public void recordFrameMiss(long nanos) {
+        frameMisses.record(nanos);
+    }
+
+    /**
+     * Record update steps that were skipped, because the simulation fell too far behind.
+     * @param amount amount of skipped steps
+     */
+    public void recordDroppedTicks(long amount) {
+        droppedTicks += amount;
+    }
+
+    /**
+     * Add a histogram to the metrics, so it is reported with the engine phases.
+     * @param histogram histogram recorded by the caller
+     */
+    public void register(TimingHistogram histogram) {
+        histograms.add(histogram);
+    }
+
+    /**
+     * Get all histograms, the engine phases first and then the registered ones.
+     * @return histograms in registration order
+     */
+    public List<TimingHistogram> getHistograms() {
+        return histograms;
+    }
+
+    public TimingHistogram getHistogram(String name) {
+        for (TimingHistogram histogram : histograms) {
+            if (histogram.getName().equals(name)) {
+                return histogram;
+            }
+        }
+        return null;
+    }
+
+    public void reset() {
+        for (TimingHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Recalculate ticks and frames per second, if at least one second passed since the last time.
+     * @param time current time in nanoseconds
+     * @return true if the rates were updated
+     */
+    public boolean updateRates(long time) {
+        if (rateTime == 0) {
+            rateTime = time;
+            return false;
+        }
+        long elapsed = time - rateTime;
+        if (elapsed < 1_000_000_000L) {
+            return false;
+        }
+        ticksPerSecond = (ticks - rateTicks) * 1_000_000_000f / elapsed;
+        framesPerSecond = (frames - rateFrames) * 1_000_000_000f / elapsed;
+        rateTicks = ticks;
+        rateFrames = frames;
+        rateTime = time;
+        return true;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    public long getLastTickTime() {
+        return lastTickTime;
+    }
+
+    public long getLastFrameTime() {
+        return lastFrameTime;
+    }
+
+    public float getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public float getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public TimingHistogram getInputTimes() {
+        return inputTimes;
+    }
+
+    public TimingHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    public TimingHistogram getRenderTimes() {
+        return renderTimes;
+    }
+
+    public TimingHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    public TimingHistogram getFrameMisses() {
+        return frameMisses;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ticks ").append(ticks).append(", frames ").append(frames).append(", dropped ticks ").append(droppedTicks);
+        for (TimingHistogram histogram : histograms) {
+            if (histogram.getCount() > 0) {
+                builder.append(System.lineSeparator()).append(histogram);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop to a target frame rate. Frames are scheduled on fixed deadlines, so a late frame
+ * shortens the wait of the next one. If the loop is more than a whole slot late, the schedule
+ * restarts instead of rushing frames to catch up.
+ */
+public class FramePacer {
+
+    // the last part of a frame wait is spent spinning, parking is not precise enough for it
+    private static final long SPIN_TIME = 1_000_000L;
+
+    private int targetFps;
+    private long nextFrameTime;
+
+    public FramePacer(int targetFps) {
+        this.targetFps = targetFps;
+    }
+
+    // starts the schedule with a frame slot beginning now
+    public void start() {
+        nextFrameTime = System.nanoTime();
+    }
+
+    /**
+     * Wait for the start of the next frame slot.
+     * @return how late the wait ended in nanoseconds
+     */
+    public long sync() {
+        long frameSlot = 1_000_000_000L / targetFps;
+        nextFrameTime += frameSlot;
+        long now = System.nanoTime();
+        if (now - nextFrameTime > frameSlot) {
+            nextFrameTime = now;
+        }
+
+        long remaining;
+        while ((remaining = nextFrameTime - System.nanoTime()) > SPIN_TIME) {
+            LockSupport.parkNanos(remaining - SPIN_TIME);
+        }
+        while (System.nanoTime() < nextFrameTime) {
+            Thread.onSpinWait();
+        }
+        return System.nanoTime() - nextFrameTime;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    public void setTargetFps(int targetFps) {
+        this.targetFps = targetFps;
+    }
+}
@@ -4,13 +4,47 @@ import engine.input.MouseInput;
 
 public interface IGameLogic {
 
+    /**
+     * Hand over the simulation clock, called before initialization. Gameplay timing should read
+     * this clock instead of the system time.
+     * @param clock clock advanced by the engine after every update step
+     */
+    default void setClock(SimulationClock clock) {
+    }
+
     void init(Window window) throws Exception;
 
+    /**
+     * Initialize the game logic for an engine without window. Implementations must not
+     * create any meshes, textures or other OpenGL resources.
+     */
+    default void initHeadless() throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support headless mode");
+    }
+
+    /**
+     * Register timings of game systems, called once after initialization.
+     * @param metrics metrics of the engine running this game logic
+     */
+    default void registerMetrics(EngineMetrics metrics) {
+    }
+
     void input(Window window, MouseInput mouseInput);
 
     void update(float interval, MouseInput mouseInput);
 
-    void render(Window window);
+    /**
+     * Copy the state of the last update into a snapshot for the renderer.
+     * Called on the simulation thread after the update steps of a loop iteration.
+     */
+    void snapshot(RenderSnapshot snapshot);
+
+    /**
+     * Render a snapshot published by {@link #snapshot(RenderSnapshot)}. Called on the render thread,
+     * concurrently to input and update, so only the snapshot may be read.
+     * @param alpha progress between the previous (0) and the current tick (1) of the snapshot
+     */
+    void render(Window window, RenderSnapshot snapshot, float alpha);
 
     void cleanup();
 }
@@ -0,0 +1,267 @@
+package engine;
+
+import engine.graph.Camera;
+import engine.graph.DirectionalLight;
+import engine.graph.Mesh;
+import engine.graph.PointLight;
+import engine.graph.SpotLight;
+import engine.objects.GameObject;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the renderer needs from one simulation tick, copied so the simulation can keep
+ * running while the frame is drawn. Snapshots are reused, {@link #clear()} keeps all buffers.
+ */
+public class RenderSnapshot {
+
+    private final Vector3f cameraPosition;
+    private final Vector3f cameraRotation;
+    private final Vector3f previousCameraPosition;
+    private final Vector3f previousCameraRotation;
+    private final Map<Mesh, MeshBatch> batchMap;
+    private final List<MeshBatch> batches;
+    private final List<String> hudTexts;
+    private final SceneLight sceneLight;
+    // model matrix of the skybox at snapshot time, the skybox itself belongs to the simulation
+    private final float[] skyBoxMatrix;
+    private Mesh skyBoxMesh;
+    private long tick;
+    private long time;
+    private long accumulator;
+
+    public RenderSnapshot() {
+        cameraPosition = new Vector3f();
+        cameraRotation = new Vector3f();
+        previousCameraPosition = new Vector3f();
+        previousCameraRotation = new Vector3f();
+        batchMap = new HashMap<>();
+        batches = new ArrayList<>();
+        hudTexts = new ArrayList<>();
+        sceneLight = new SceneLight();
+        sceneLight.setAmbientLight(new Vector3f());
+        sceneLight.setDirectionalLight(new DirectionalLight(new Vector3f(), new Vector3f(), 0));
+        skyBoxMatrix = new float[16];
+    }
+
+    public void clear() {
+        skyBoxMesh = null;
+        for (MeshBatch batch : batches) {
+            batch.count = 0;
+        }
+        batches.clear();
+        hudTexts.clear();
+    }
+
+    public void setTick(long tick, long time, long accumulator) {
+        this.tick = tick;
+        this.time = time;
+        this.accumulator = accumulator;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the time the snapshot was taken.
+     * @return time in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the simulation time that was left in the accumulator after the last tick.
+     * @return leftover time in nanoseconds
+     */
+    public long getAccumulator() {
+        return accumulator;
+    }
+
+    public void setCamera(Camera camera) {
+        cameraPosition.set(camera.getPosition());
+        cameraRotation.set(camera.getRotation());
+        previousCameraPosition.set(camera.getPreviousPosition());
+        previousCameraRotation.set(camera.getPreviousRotation());
+    }
+
+    public Vector3f getCameraPosition() {
+        return cameraPosition;
+    }
+
+    public Vector3f getCameraRotation() {
+        return cameraRotation;
+    }
+
+    public Vector3f getPreviousCameraPosition() {
+        return previousCameraPosition;
+    }
+
+    public Vector3f getPreviousCameraRotation() {
+        return previousCameraRotation;
+    }
+
+    public void addGameObject(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if (mesh == null) {
+            return;
+        }
+        batch(mesh).add(gameObject);
+    }
+
+    /**
+     * Adds all objects of a scene bucket, looking up the batch of their mesh once.
+     */
+    public void addBucket(Scene.MeshBucket bucket) {
+        int size = bucket.size();
+        if (size == 0) {
+            return;
+        }
+        MeshBatch batch = batch(bucket.getMesh());
+        for (int i = 0; i < size; i++) {
+            batch.add(bucket.get(i));
+        }
+    }
+
+    private MeshBatch batch(Mesh mesh) {
+        MeshBatch batch = batchMap.get(mesh);
+        if (batch == null) {
+            batch = new MeshBatch(mesh);
+            batchMap.put(mesh, batch);
+        }
+        if (batch.count == 0) {
+            batches.add(batch);
+        }
+        return batch;
+    }
+
+    public List<MeshBatch> getBatches() {
+        return batches;
+    }
+
+    public void setSkyBox(SkyBox skyBox) {
+        if (skyBox == null || skyBox.getMesh() == null) {
+            skyBoxMesh = null;
+            return;
+        }
+        skyBoxMesh = skyBox.getMesh();
+        skyBox.getWorldMatrix().get(skyBoxMatrix);
+    }
+
+    // null if the scene has no skybox
+    public Mesh getSkyBoxMesh() {
+        return skyBoxMesh;
+    }
+
+    // column major, like the matrices of the mesh batches
+    public float[] getSkyBoxMatrix() {
+        return skyBoxMatrix;
+    }
+
+    public void addHudText(String text) {
+        hudTexts.add(text);
+    }
+
+    public List<String> getHudTexts() {
+        return hudTexts;
+    }
+
+    public void setSceneLight(SceneLight light) {
+        sceneLight.getAmbientLight().set(light.getAmbientLight());
+        DirectionalLight directionalLight = sceneLight.getDirectionalLight();
+        directionalLight.getColor().set(light.getDirectionalLight().getColor());
+        directionalLight.getDirection().set(light.getDirectionalLight().getDirection());
+        directionalLight.setIntensity(light.getDirectionalLight().getIntensity());
+
+        PointLight[] pointLights = light.getPointLightList();
+        if (pointLights != null) {
+            PointLight[] copy = new PointLight[pointLights.length];
+            for (int i = 0; i < pointLights.length; i++) {
+                copy[i] = new PointLight(pointLights[i]);
+            }
+            sceneLight.setPointLightList(copy);
+        } else {
+            sceneLight.setPointLightList(null);
+        }
+        SpotLight[] spotLights = light.getSpotLightList();
+        if (spotLights != null) {
+            SpotLight[] copy = new SpotLight[spotLights.length];
+            for (int i = 0; i < spotLights.length; i++) {
+                copy[i] = new SpotLight(spotLights[i]);
+            }
+            sceneLight.setSpotLightList(copy);
+        } else {
+            sceneLight.setSpotLightList(null);
+        }
+    }
+
+    public SceneLight getSceneLight() {
+        return sceneLight;
+    }
+
+    /**
+     * Transformations of all game objects sharing one mesh, packed as previous position, previous
+     * rotation, position, rotation and scale. Objects that didn't move during the tick also get their
+     * cached model matrix, so they don't need to be interpolated.
+     */
+    public static class MeshBatch {
+
+        public static final int STRIDE = 13;
+        public static final int MATRIX_STRIDE = 16;
+
+        private final Mesh mesh;
+        private float[] transforms;
+        private float[] matrices;
+        private boolean[] still;
+        private int count;
+
+        private MeshBatch(Mesh mesh) {
+            this.mesh = mesh;
+            transforms = new float[16 * STRIDE];
+            matrices = new float[16 * MATRIX_STRIDE];
+            still = new boolean[16];
+        }
+
+        private void add(GameObject gameObject) {
+            int offset = count * STRIDE;
+            if (offset + STRIDE > transforms.length) {
+                transforms = Arrays.copyOf(transforms, transforms.length * 2);
+                matrices = Arrays.copyOf(matrices, matrices.length * 2);
+                still = Arrays.copyOf(still, still.length * 2);
+            }
+            gameObject.copyTransform(transforms, offset);
+            still[count] = !gameObject.isMoving();
+            if (still[count]) {
+                gameObject.getWorldMatrix().get(matrices, count * MATRIX_STRIDE);
+            }
+            count++;
+        }
+
+        // true if the object has a model matrix in getMatrices
+        public boolean isStill(int index) {
+            return still[index];
+        }
+
+        public float[] getMatrices() {
+            return matrices;
+        }
+
+        public Mesh getMesh() {
+            return mesh;
+        }
+
+        public float[] getTransforms() {
+            return transforms;
+        }
+
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -4,34 +4,97 @@ import engine.graph.Mesh;
 import engine.objects.GameObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Game objects grouped by mesh. The buckets are kept up to date by add, remove and updateMesh instead of
+ * being rebuilt, each bucket is a dense array and removing moves its last object into the free place.
+ * Objects without a mesh aren't drawn, so they aren't stored.
+ * Not thread safe.
+ */
 public class Scene {
 
-    private Map<Mesh, List<GameObject>> meshMap;
+    private final Map<Mesh, MeshBucket> bucketMap;
+    // all buckets ever created, empty ones included, in creation order
+    private final List<MeshBucket> buckets;
+    private final Map<GameObject, Entry> entries;
     private SkyBox skyBox;
     private SceneLight sceneLight;
 
     public Scene() {
-        meshMap = new HashMap<>();
+        bucketMap = new HashMap<>();
+        buckets = new ArrayList<>();
+        entries = new IdentityHashMap<>();
     }
 
-    public Map<Mesh, List<GameObject>> getGameMeshes() {
-        return meshMap;
+    public void add(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if(mesh == null || entries.containsKey(gameObject)) {
+            return;
+        }
+        Entry entry = new Entry(bucket(mesh));
+        entries.put(gameObject, entry);
+        entry.bucket.add(gameObject, entry);
     }
 
-    public void setGameObjectsMeshes(List<GameObject> gameObjects) {
-        for (GameObject gameObject : gameObjects) {
-            Mesh mesh = gameObject.getMesh();
-            List<GameObject> list = meshMap.get(mesh);
-            if(list == null) {
-                list = new ArrayList<>();
-                meshMap.put(mesh, list);
-            }
-            list.add(gameObject);
+    public void addAll(List<? extends GameObject> gameObjects) {
+        for(int i = 0; i < gameObjects.size(); i++) {
+            add(gameObjects.get(i));
+        }
+    }
+
+    public boolean remove(GameObject gameObject) {
+        Entry entry = entries.remove(gameObject);
+        if(entry == null) {
+            return false;
+        }
+        entry.bucket.remove(entry.index);
+        return true;
+    }
+
+    /**
+     * Moves the object to the bucket of its current mesh, call after changing the mesh of an added object.
+     */
+    public void updateMesh(GameObject gameObject) {
+        Entry entry = entries.get(gameObject);
+        if(entry == null) {
+            add(gameObject);
+            return;
+        }
+        Mesh mesh = gameObject.getMesh();
+        if(mesh == entry.bucket.mesh) {
+            return;
         }
+        remove(gameObject);
+        add(gameObject);
+    }
+
+    public boolean contains(GameObject gameObject) {
+        return entries.containsKey(gameObject);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // empties the buckets, but keeps them and their meshes
+    public void clear() {
+        for(int i = 0; i < buckets.size(); i++) {
+            buckets.get(i).clear();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Buckets of all meshes that were ever added. Buckets stay when they become empty, so their meshes
+     * can still be cleaned up.
+     */
+    public List<MeshBucket> getBuckets() {
+        return buckets;
     }
 
     public SkyBox getSkyBox() {
@@ -49,4 +112,84 @@ public class Scene {
     public void setSceneLight(SceneLight sceneLight) {
         this.sceneLight = sceneLight;
     }
+
+    private MeshBucket bucket(Mesh mesh) {
+        MeshBucket bucket = bucketMap.get(mesh);
+        if(bucket == null) {
+            bucket = new MeshBucket(mesh);
+            bucketMap.put(mesh, bucket);
+            buckets.add(bucket);
+        }
+        return bucket;
+    }
+
+    // bucket and index of an object, kept up to date when other objects are moved
+    private static class Entry {
+        private final MeshBucket bucket;
+        private int index;
+
+        private Entry(MeshBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * All game objects of the scene sharing one mesh, in no particular order.
+     */
+    public static class MeshBucket {
+
+        private final Mesh mesh;
+        private GameObject[] objects;
+        private Entry[] entries;
+        private int size;
+
+        private MeshBucket(Mesh mesh) {
+            this.mesh = mesh;
+            objects = new GameObject[16];
+            entries = new Entry[16];
+        }
+
+        private void add(GameObject gameObject, Entry entry) {
+            if(size == objects.length) {
+                objects = Arrays.copyOf(objects, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            objects[size] = gameObject;
+            entries[size] = entry;
+            entry.index = size;
+            size++;
+        }
+
+        private void remove(int index) {
+            int last = --size;
+            if(index != last) {
+                objects[index] = objects[last];
+                entries[index] = entries[last];
+                entries[index].index = index;
+            }
+            objects[last] = null;
+            entries[last] = null;
+        }
+
+        private void clear() {
+            Arrays.fill(objects, 0, size, null);
+            Arrays.fill(entries, 0, size, null);
+            size = 0;
+        }
+
+        public Mesh getMesh() {
+            return mesh;
+        }
+
+        public GameObject get(int index) {
+            if(index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            }
+            return objects[index];
+        }
+
+        public int size() {
+            return size;
+        }
+    }
 }
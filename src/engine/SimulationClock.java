@@ -0,0 +1,71 @@
+package engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock of the simulation. It only advances by whole update steps, so gameplay that reads it
+ * behaves the same on every run, independent of the wall clock and the frame rate.
+ * Gameplay can schedule tasks on the clock instead of polling it.
+ */
+public class SimulationClock {
+
+    private final long tickNanos;
+    private final TimerWheel timers;
+    private volatile long tick;
+
+    /**
+     * @param ticksPerSecond update steps per second of simulation time
+     */
+    public SimulationClock(int ticksPerSecond) {
+        tickNanos = TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+        timers = new TimerWheel();
+    }
+
+    /**
+     * Advance the clock by one update step and run the tasks that became due.
+     * Called by the engine after every step.
+     */
+    public void advance() {
+        tick++;
+        timers.advanceTo(tick);
+    }
+
+    /**
+     * Run a task once the given simulation time passed. The task runs on the simulation thread,
+     * between two update steps, in the first step at which the delay is reached.
+     * @param delay delay in nanoseconds
+     * @param task task to run
+     * @return handle to cancel the task
+     */
+    public TimerWheel.Timeout schedule(long delay, Runnable task) {
+        return timers.schedule(tick + (delay + tickNanos - 1) / tickNanos, task);
+    }
+
+    /**
+     * Cancel a scheduled task, does nothing if it already ran or was cancelled.
+     * @param timeout handle returned by {@link #schedule(long, Runnable)}, may be null
+     */
+    public void cancel(TimerWheel.Timeout timeout) {
+        timers.cancel(timeout);
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the simulation time passed since the clock was created.
+     * @return time in nanoseconds
+     */
+    public long getTime() {
+        return tick * tickNanos;
+    }
+
+    /**
+     * Get the length of one update step.
+     * @return step length in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+}
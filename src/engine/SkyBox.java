@@ -5,11 +5,12 @@ import engine.graph.Mesh;
 import engine.graph.OBJLoader;
 import engine.graph.Texture;
 import engine.objects.GameObject;
+import engine.objects.TransformStore;
 
 public class SkyBox extends GameObject {
 
-    public SkyBox(String objModel, String textureFile) throws Exception {
-        super();
+    public SkyBox(TransformStore transforms, String objModel, String textureFile) throws Exception {
+        super(transforms);
         Mesh skyBoxMesh = OBJLoader.loadMesh(objModel);
         Texture skyBoxtexture = new Texture(textureFile);
         skyBoxMesh.setMaterial(new Material(skyBoxtexture, 0.0f));
@@ -18,8 +19,6 @@ public class SkyBox extends GameObject {
     }
 
     public void moveAlong(float x, float y, float z) {
-        position.x = x;
-        position.y = y;
-        position.z = z;
+        moveTo(x, y, z);
     }
 }
@@ -0,0 +1,53 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock free triple buffer of render snapshots between the simulation and the render thread.
+ * The simulation fills its own snapshot and swaps it with the shared one when publishing,
+ * the renderer swaps its own snapshot with the shared one only if a newer one was published.
+ * Neither thread ever waits for the other.
+ */
+public class SnapshotBuffer {
+
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH = 0b100;
+
+    private final RenderSnapshot[] snapshots;
+    private final AtomicInteger shared;
+    private int writeIndex;
+    private int readIndex;
+
+    public SnapshotBuffer() {
+        snapshots = new RenderSnapshot[] { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+        writeIndex = 0;
+        shared = new AtomicInteger(1);
+        readIndex = 2;
+    }
+
+    /**
+     * Get the snapshot owned by the simulation thread.
+     * @return snapshot to fill before the next {@link #publish()}
+     */
+    public RenderSnapshot getWriteSnapshot() {
+        return snapshots[writeIndex];
+    }
+
+    /**
+     * Hand the filled write snapshot over to the renderer.
+     */
+    public void publish() {
+        writeIndex = shared.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Get the most recently published snapshot, called by the render thread only.
+     * @return latest snapshot, stays valid until the next call
+     */
+    public RenderSnapshot getLatest() {
+        if ((shared.get() & FRESH) != 0) {
+            readIndex = shared.getAndSet(readIndex) & INDEX_MASK;
+        }
+        return snapshots[readIndex];
+    }
+}
@@ -2,34 +2,33 @@ package engine;
 
 public class Timer {
 
-    private double lastLoopTime;
+    private long lastLoopTime;
 
     public void init() {
         lastLoopTime = getTime();
     }
 
     /**
-     * Get the current system time, converted to seconds
-     * @return current system time in seconds
+     * Get the current system time
+     * @return current system time in nanoseconds
      */
-    public double getTime() {
-        // get time in seconds
-        return System.nanoTime() / 1000_000_000.0;
+    public long getTime() {
+        return System.nanoTime();
     }
 
     /**
      * Get the time that elapsed between the last time and now.
      * Update last time with current time.
-     * @return time between the last time and now
+     * @return time between the last time and now in nanoseconds
      */
-    public float getElapsedTime() {
-        double time = getTime();
-        float elapsedTime = (float) (time - lastLoopTime);
+    public long getElapsedTime() {
+        long time = getTime();
+        long elapsedTime = time - lastLoopTime;
         lastLoopTime = time;
         return elapsedTime;
     }
 
-    public double getLastLoopTime() {
+    public long getLastLoopTime() {
         return lastLoopTime;
     }
 }
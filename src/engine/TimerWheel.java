@@ -0,0 +1,149 @@
+package engine;
+
+/**
+ * Hierarchical timing wheel counting in update steps. Every level has 64 slots, each slot of a level
+ * covers a whole turn of the level below. Scheduling and cancelling are constant time, advancing
+ * only touches the slots that are due, so the cost per step depends on the events that fire and
+ * not on the amount of scheduled events.
+ */
+public class TimerWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final Timeout[][] wheels;
+    private long currentTick;
+    private int size;
+
+    public TimerWheel() {
+        wheels = new Timeout[LEVELS][SLOTS];
+    }
+
+    /**
+     * Schedule a task.
+     * @param deadline step at which the task runs, a step that already passed runs with the next step
+     * @param task task to run
+     * @return handle to cancel the task
+     */
+    public synchronized Timeout schedule(long deadline, Runnable task) {
+        Timeout timeout = new Timeout(Math.max(deadline, currentTick + 1), task);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancel a scheduled task, does nothing if it already ran or was cancelled.
+     * @param timeout handle returned by {@link #schedule(long, Runnable)}
+     */
+    public synchronized void cancel(Timeout timeout) {
+        if (timeout != null && timeout.scheduled) {
+            unlink(timeout);
+            size--;
+        }
+    }
+
+    /**
+     * Advance the wheel step by step and run every task that is due. Tasks of earlier steps run first.
+     * @param tick step to advance to
+     */
+    public synchronized void advanceTo(long tick) {
+        while (currentTick < tick) {
+            currentTick++;
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            }
+            fire((int) currentTick & SLOT_MASK);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getCurrentTick() {
+        return currentTick;
+    }
+
+    private void place(Timeout timeout) {
+        long delta = timeout.deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (timeout.deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = wheels[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+        timeout.scheduled = true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout timeout = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void fire(int slot) {
+        // tasks may cancel other timeouts of this slot, so unlink one by one. Tasks cannot
+        // schedule into this slot again, new deadlines are at least one step ahead.
+        Timeout timeout;
+        while ((timeout = wheels[0][slot]) != null) {
+            unlink(timeout);
+            size--;
+            timeout.task.run();
+        }
+    }
+
+    public static class Timeout {
+
+        private final long deadline;
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private int level;
+        private int slot;
+        private boolean scheduled;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isScheduled() {
+            return scheduled;
+        }
+    }
+}
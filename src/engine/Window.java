@@ -4,6 +4,8 @@ import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.glfw.GLFW.GLFW_TRUE;
 import static org.lwjgl.opengl.GL11.*;
@@ -18,6 +20,10 @@ public class Window {
     private boolean resized;
     private boolean vSync;
     private boolean debugMode;
+    // one bit per key, written by the key callback on the render thread
+    private final long[] polledKeys;
+    // copy of polledKeys taken after every poll, read by the simulation thread
+    private final AtomicLongArray keys;
 
     public Window(String title, int width, int height, boolean vSync) {
         this.title = title;
@@ -25,6 +31,8 @@ public class Window {
         this.height = height;
         this.vSync = vSync;
         debugMode = false;
+        polledKeys = new long[GLFW_KEY_LAST / 64 + 1];
+        keys = new AtomicLongArray(polledKeys.length);
     }
 
     public void init() {
@@ -60,6 +68,14 @@ public class Window {
         glfwSetKeyCallback(windowHandle, (window, key, scancode, action, mods) -> {
             if (key == GLFW_KEY_ESCAPE && action == GLFW_RELEASE)
                 glfwSetWindowShouldClose(window, true);
+            if (key == GLFW_KEY_UNKNOWN) {
+                return;
+            }
+            if (action == GLFW_PRESS) {
+                polledKeys[key >>> 6] |= 1L << key;
+            } else if (action == GLFW_RELEASE) {
+                polledKeys[key >>> 6] &= ~(1L << key);
+            }
         });
 
 
@@ -105,12 +121,18 @@ public class Window {
         glClearColor(r, g, b, alpha);
     }
 
+    /**
+     * State of the key at the last update, safe to call from any thread.
+     */
     public boolean isKeyPressed(int keyCode) {
-        return glfwGetKey(windowHandle, keyCode) == GLFW_PRESS;
+        if (keyCode < 0 || keyCode > GLFW_KEY_LAST) {
+            return false;
+        }
+        return (keys.get(keyCode >>> 6) & (1L << keyCode)) != 0;
     }
 
     public boolean isKeyReleased(int keyCode) {
-        return glfwGetKey(windowHandle, keyCode) == GLFW_RELEASE;
+        return !isKeyPressed(keyCode);
     }
 
     public boolean windowShouldClose() {
@@ -157,8 +179,14 @@ public class Window {
         return debugMode;
     }
 
+    /**
+     * Swaps the buffers and polls the events, then publishes the key state for the simulation thread.
+     */
     public void update() {
         glfwSwapBuffers(windowHandle);
         glfwPollEvents();
+        for (int i = 0; i < polledKeys.length; i++) {
+            keys.set(i, polledKeys[i]);
+        }
     }
 }
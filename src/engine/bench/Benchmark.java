@@ -0,0 +1,50 @@
+package engine.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single measured operation. Setup runs before every iteration and is not measured, finish once after
+ * the last iteration.
+ */
+public abstract class Benchmark {
+
+    private final String name;
+    private final Map<String, Object> params;
+
+    public Benchmark(String name) {
+        this.name = name;
+        params = new LinkedHashMap<>();
+    }
+
+    public Benchmark param(String key, Object value) {
+        params.put(key, value);
+        return this;
+    }
+
+    public void setup() throws Exception {
+    }
+
+    // the returned value is consumed by the runner, so the work can't be optimized away
+    public abstract Object run() throws Exception;
+
+    public void teardown() throws Exception {
+    }
+
+    // frees what the iterations share, like the world setup keeps resetting
+    public void finish() throws Exception {
+    }
+
+    // benchmarks that create meshes or textures need an OpenGL context
+    public boolean needsGl() {
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getParams() {
+        return params;
+    }
+}
@@ -0,0 +1,198 @@
+package engine.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs benchmarks in warmup and measurement iterations and reports the average time per operation.
+ * The json output follows the layout of jmh's result files, so existing tooling can read it.
+ */
+public class BenchmarkRunner {
+
+    // operations are timed in batches, so the cost of nanoTime doesn't dominate tiny operations
+    private static final long MIN_BATCH_TIME = 10_000L;
+    // 99.9% quantile of the normal distribution
+    private static final double ERROR_QUANTILE = 3.291;
+
+    private final List<Benchmark> benchmarks;
+    private int warmupIterations = 5;
+    private int measurementIterations = 10;
+    private long iterationTime = 200_000_000L;
+    private boolean gl;
+
+    // results of all operations end up here, so the jit can't remove the work
+    private volatile int sink;
+
+    public BenchmarkRunner() {
+        benchmarks = new ArrayList<>();
+    }
+
+    public void add(Benchmark benchmark) {
+        benchmarks.add(benchmark);
+    }
+
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public void setMeasurementIterations(int measurementIterations) {
+        this.measurementIterations = measurementIterations;
+    }
+
+    public void setIterationTime(long iterationTime) {
+        this.iterationTime = iterationTime;
+    }
+
+    public void setGl(boolean gl) {
+        this.gl = gl;
+    }
+
+    public List<Result> runAll() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for(Benchmark benchmark : benchmarks) {
+            if(benchmark.needsGl() && !gl) {
+                System.out.println("skipping " + benchmark.getName() + ", needs OpenGL");
+                continue;
+            }
+            Result result = run(benchmark);
+            System.out.println(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    public Result run(Benchmark benchmark) throws Exception {
+        int batchSize = 1;
+        for(int i = 0; i < warmupIterations; i++) {
+            benchmark.setup();
+            batchSize = calibrate(benchmark, batchSize);
+            iterate(benchmark, batchSize);
+            benchmark.teardown();
+        }
+        double[] scores = new double[measurementIterations];
+        for(int i = 0; i < measurementIterations; i++) {
+            benchmark.setup();
+            scores[i] = iterate(benchmark, batchSize);
+            benchmark.teardown();
+        }
+        benchmark.finish();
+        return new Result(benchmark, scores);
+    }
+
+    private int calibrate(Benchmark benchmark, int batchSize) throws Exception {
+        while(batchSize < Integer.MAX_VALUE / 2 && batch(benchmark, batchSize) < MIN_BATCH_TIME) {
+            batchSize *= 2;
+        }
+        return batchSize;
+    }
+
+    // returns nanoseconds per operation
+    private double iterate(Benchmark benchmark, int batchSize) throws Exception {
+        long operations = 0;
+        long elapsed = 0;
+        while(elapsed < iterationTime) {
+            elapsed += batch(benchmark, batchSize);
+            operations += batchSize;
+        }
+        return (double) elapsed / operations;
+    }
+
+    private long batch(Benchmark benchmark, int batchSize) throws Exception {
+        int hash = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < batchSize; i++) {
+            Object result = benchmark.run();
+            hash += result == null ? 0 : result.hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += hash;
+        return elapsed;
+    }
+
+    public static void writeJson(List<Result> results, Writer writer) throws IOException {
+        writer.write("[\n");
+        for(int i = 0; i < results.size(); i++) {
+            results.get(i).writeJson(writer);
+            writer.write(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        writer.write("]\n");
+        writer.flush();
+    }
+
+    public static class Result {
+
+        private final String name;
+        private final Map<String, Object> params;
+        private final double[] scores;
+        private final double score;
+        private final double error;
+
+        public Result(Benchmark benchmark, double[] scores) {
+            name = benchmark.getName();
+            params = benchmark.getParams();
+            this.scores = scores;
+            double sum = 0;
+            for(double s : scores) {
+                sum += s;
+            }
+            score = scores.length > 0 ? sum / scores.length : Double.NaN;
+            double variance = 0;
+            for(double s : scores) {
+                variance += (s - score) * (s - score);
+            }
+            error = scores.length > 1 ? ERROR_QUANTILE * Math.sqrt(variance / (scores.length - 1) / scores.length) : Double.NaN;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public double getError() {
+            return error;
+        }
+
+        private void writeJson(Writer writer) throws IOException {
+            writer.write("    {\n");
+            writer.write("        \"benchmark\" : \"" + escape(name) + "\",\n");
+            writer.write("        \"mode\" : \"avgt\",\n");
+            writer.write("        \"measurementIterations\" : " + scores.length + ",\n");
+            writer.write("        \"params\" : {");
+            int p = 0;
+            for(Map.Entry<String, Object> param : params.entrySet()) {
+                writer.write((p++ > 0 ? ", " : " ") + "\"" + escape(param.getKey()) + "\" : \"" + escape(String.valueOf(param.getValue())) + "\"");
+            }
+            writer.write(params.isEmpty() ? "},\n" : " },\n");
+            writer.write("        \"primaryMetric\" : {\n");
+            writer.write("            \"score\" : " + number(score) + ",\n");
+            writer.write("            \"scoreError\" : " + number(error) + ",\n");
+            writer.write("            \"scoreUnit\" : \"ns/op\",\n");
+            writer.write("            \"rawData\" : [ [");
+            for(int i = 0; i < scores.length; i++) {
+                writer.write((i > 0 ? ", " : " ") + number(scores[i]));
+            }
+            writer.write(" ] ]\n");
+            writer.write("        }\n");
+            writer.write("    }");
+        }
+
+        private static String number(double value) {
+            return Double.isNaN(value) || Double.isInfinite(value) ? "\"NaN\"" : Double.toString(value);
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: %.3f +- %.3f ns/op", name, params.isEmpty() ? "" : params.toString(), score, error);
+        }
+    }
+}
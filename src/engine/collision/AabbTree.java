@@ -0,0 +1,610 @@
+package engine.collision;
+
+import engine.objects.GameObject;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Dynamic bounding volume tree over the bounding spheres of game objects, kept balanced by tree rotations.
+ * Leaves store a box enlarged by a margin, so objects only have to be reinserted once they leave it.
+ * Offers sphere overlap, raycast and k nearest queries in logarithmic time.
+ * Not thread safe, queries share scratch buffers.
+ */
+public class AabbTree<T extends GameObject> {
+
+    private static final int NULL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final float margin;
+    private final Map<T, Integer> leaves;
+
+    // nodes are stored as parallel arrays, parent doubles as the next pointer of the free list
+    private float[] minX;
+    private float[] minY;
+    private float[] minZ;
+    private float[] maxX;
+    private float[] maxY;
+    private float[] maxZ;
+    private int[] parent;
+    private int[] child1;
+    private int[] child2;
+    private int[] height;
+    private Object[] objects;
+    private int freeList;
+    private int root;
+
+    // scratch buffers of the queries
+    private int[] stack;
+    private int[] heapNodes;
+    private float[] heapKeys;
+    private float[] bestKeys;
+
+    public AabbTree(float margin) {
+        this.margin = margin;
+        leaves = new IdentityHashMap<>();
+        stack = new int[64];
+        heapNodes = new int[64];
+        heapKeys = new float[64];
+        bestKeys = new float[8];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public void insert(T object) {
+        if(leaves.containsKey(object)) {
+            update(object);
+            return;
+        }
+        int leaf = allocateNode();
+        objects[leaf] = object;
+        height[leaf] = 0;
+        setFatBounds(leaf, object);
+        insertLeaf(leaf);
+        leaves.put(object, leaf);
+    }
+
+    /**
+     * Refits the object after it moved. Returns whether it had to be reinserted.
+     */
+    public boolean update(T object) {
+        Integer leaf = leaves.get(object);
+        if(leaf == null) {
+            insert(object);
+            return true;
+        }
+        float x = object.getX();
+        float y = object.getY();
+        float z = object.getZ();
+        float r = object.getRadius();
+        if(minX[leaf] <= x - r && minY[leaf] <= y - r && minZ[leaf] <= z - r
+                && maxX[leaf] >= x + r && maxY[leaf] >= y + r && maxZ[leaf] >= z + r) {
+            return false;
+        }
+        removeLeaf(leaf);
+        setFatBounds(leaf, object);
+        insertLeaf(leaf);
+        return true;
+    }
+
+    public void remove(T object) {
+        Integer leaf = leaves.remove(object);
+        if(leaf != null) {
+            removeLeaf(leaf);
+            freeNode(leaf);
+        }
+    }
+
+    public boolean contains(T object) {
+        return leaves.containsKey(object);
+    }
+
+    public int size() {
+        return leaves.size();
+    }
+
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    public void clear() {
+        leaves.clear();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public List<T> querySphere(GameObject object, float radius, List<T> result) {
+        return querySphere(object.getX(), object.getY(), object.getZ(), radius, result);
+    }
+
+    /**
+     * Adds every object whose bounding sphere overlaps the given sphere to result.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> querySphere(float x, float y, float z, float radius, List<T> result) {
+        if(root == NULL) {
+            return result;
+        }
+        int top = 0;
+        stack[top++] = root;
+        while(top > 0) {
+            int node = stack[--top];
+            if(boxDistanceSquared(node, x, y, z) > radius * radius) {
+                continue;
+            }
+            if(child1[node] == NULL) {
+                T object = (T) objects[node];
+                float reach = radius + object.getRadius();
+                if(centerDistanceSquared(object, x, y, z) < reach * reach) {
+                    result.add(object);
+                }
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first object hit by the ray. The direction doesn't need to be normalized.
+     * Returns whether something was hit within maxDistance, details are written into hit.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean raycast(float originX, float originY, float originZ, float directionX, float directionY, float directionZ,
+                           float maxDistance, Predicate<? super T> filter, RayHit<T> hit) {
+        hit.object = null;
+        hit.distance = maxDistance;
+        float length = (float) Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+        if(root == NULL || length == 0) {
+            return false;
+        }
+        float dx = directionX / length;
+        float dy = directionY / length;
+        float dz = directionZ / length;
+        float inverseX = 1f / dx;
+        float inverseY = 1f / dy;
+        float inverseZ = 1f / dz;
+
+        int top = 0;
+        stack[top++] = root;
+        while(top > 0) {
+            int node = stack[--top];
+            if(!rayHitsBox(node, originX, originY, originZ, inverseX, inverseY, inverseZ, hit.distance)) {
+                continue;
+            }
+            if(child1[node] == NULL) {
+                T object = (T) objects[node];
+                float distance = raySphere(object, originX, originY, originZ, dx, dy, dz);
+                if(distance >= 0 && distance <= hit.distance && (filter == null || filter.test(object))) {
+                    hit.object = object;
+                    hit.distance = distance;
+                }
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+        return hit.object != null;
+    }
+
+    /**
+     * Adds the k objects closest to the point to result, closest first. Distance is measured to the bounding sphere.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> nearest(float x, float y, float z, int k, Predicate<? super T> filter, List<T> result) {
+        if(root == NULL || k <= 0) {
+            return result;
+        }
+        int start = result.size();
+        if(bestKeys.length < k) {
+            bestKeys = new float[k];
+        }
+        int found = 0;
+
+        // best first search, nodes are visited in order of their distance to the point
+        int heapSize = 0;
+        heapSize = heapPush(heapSize, root, (float) Math.sqrt(boxDistanceSquared(root, x, y, z)));
+        while(heapSize > 0) {
+            float key = heapKeys[0];
+            int node = heapNodes[0];
+            heapSize = heapPop(heapSize);
+            if(found == k && key >= bestKeys[found - 1]) {
+                break;
+            }
+            if(child1[node] == NULL) {
+                T object = (T) objects[node];
+                if(filter != null && !filter.test(object)) {
+                    continue;
+                }
+                float distance = Math.max(0f, (float) Math.sqrt(centerDistanceSquared(object, x, y, z)) - object.getRadius());
+                if(found == k && distance >= bestKeys[found - 1]) {
+                    continue;
+                }
+                // insertion into the sorted list of the best candidates, dropping the worst one if it is full
+                if(found < k) {
+                    found++;
+                } else {
+                    result.remove(start + k - 1);
+                }
+                int i = found - 1;
+                while(i > 0 && bestKeys[i - 1] > distance) {
+                    bestKeys[i] = bestKeys[i - 1];
+                    i--;
+                }
+                bestKeys[i] = distance;
+                result.add(start + i, object);
+            } else {
+                heapSize = heapPush(heapSize, child1[node], (float) Math.sqrt(boxDistanceSquared(child1[node], x, y, z)));
+                heapSize = heapPush(heapSize, child2[node], (float) Math.sqrt(boxDistanceSquared(child2[node], x, y, z)));
+            }
+        }
+        return result;
+    }
+
+    public T nearest(GameObject object, Predicate<? super T> filter, List<T> scratch) {
+        scratch.clear();
+        nearest(object.getX(), object.getY(), object.getZ(), 1, filter, scratch);
+        return scratch.isEmpty() ? null : scratch.get(0);
+    }
+
+    private void setFatBounds(int node, T object) {
+        float r = object.getRadius() + margin;
+        minX[node] = object.getX() - r;
+        minY[node] = object.getY() - r;
+        minZ[node] = object.getZ() - r;
+        maxX[node] = object.getX() + r;
+        maxY[node] = object.getY() + r;
+        maxZ[node] = object.getZ() + r;
+    }
+
+    private void insertLeaf(int leaf) {
+        if(root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // descend to the sibling with the lowest surface area cost
+        int index = root;
+        while(child1[index] != NULL) {
+            int left = child1[index];
+            int right = child2[index];
+            float area = surface(index);
+            float combinedArea = unionSurface(index, leaf);
+            float cost = 2f * combinedArea;
+            float inheritanceCost = 2f * (combinedArea - area);
+            float leftCost = unionSurface(left, leaf) + inheritanceCost;
+            if(child1[left] != NULL) {
+                leftCost -= surface(left);
+            }
+            float rightCost = unionSurface(right, leaf) + inheritanceCost;
+            if(child1[right] != NULL) {
+                rightCost -= surface(right);
+            }
+            if(cost < leftCost && cost < rightCost) {
+                break;
+            }
+            index = leftCost < rightCost ? left : right;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        objects[newParent] = null;
+        height[newParent] = height[sibling] + 1;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        if(oldParent == NULL) {
+            root = newParent;
+        } else if(child1[oldParent] == sibling) {
+            child1[oldParent] = newParent;
+        } else {
+            child2[oldParent] = newParent;
+        }
+
+        refitUpwards(newParent);
+    }
+
+    private void removeLeaf(int leaf) {
+        if(leaf == root) {
+            root = NULL;
+            return;
+        }
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+        if(grandParent == NULL) {
+            root = sibling;
+            parent[sibling] = NULL;
+        } else {
+            if(child1[grandParent] == oldParent) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            refitUpwards(grandParent);
+        }
+        freeNode(oldParent);
+    }
+
+    private void refitUpwards(int index) {
+        while(index != NULL) {
+            index = balance(index);
+            int left = child1[index];
+            int right = child2[index];
+            height[index] = 1 + Math.max(height[left], height[right]);
+            setUnion(index, left, right);
+            index = parent[index];
+        }
+    }
+
+    // rotates the taller grandchild up if the subtrees of a are unbalanced, returns the new root of the subtree
+    private int balance(int a) {
+        if(child1[a] == NULL || height[a] < 2) {
+            return a;
+        }
+        int b = child1[a];
+        int c = child2[a];
+        int difference = height[c] - height[b];
+        if(difference > 1) {
+            return rotate(a, c, b);
+        }
+        if(difference < -1) {
+            return rotate(a, b, c);
+        }
+        return a;
+    }
+
+    // moves the tall child up to the place of a, a takes the other child and one of the grandchildren
+    private int rotate(int a, int tall, int other) {
+        int f = child1[tall];
+        int g = child2[tall];
+
+        child1[tall] = a;
+        parent[tall] = parent[a];
+        parent[a] = tall;
+        if(parent[tall] == NULL) {
+            root = tall;
+        } else if(child1[parent[tall]] == a) {
+            child1[parent[tall]] = tall;
+        } else {
+            child2[parent[tall]] = tall;
+        }
+
+        // the taller grandchild stays below the tall node, the shorter one moves to a
+        int stay = height[f] > height[g] ? f : g;
+        int move = stay == f ? g : f;
+        child2[tall] = stay;
+        if(child1[a] == tall) {
+            child1[a] = move;
+        } else {
+            child2[a] = move;
+        }
+        parent[move] = a;
+        setUnion(a, other, move);
+        setUnion(tall, a, stay);
+        height[a] = 1 + Math.max(height[other], height[move]);
+        height[tall] = 1 + Math.max(height[a], height[stay]);
+        return tall;
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        minZ[node] = Math.min(minZ[a], minZ[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+        maxZ[node] = Math.max(maxZ[a], maxZ[b]);
+    }
+
+    private float surface(int node) {
+        float dx = maxX[node] - minX[node];
+        float dy = maxY[node] - minY[node];
+        float dz = maxZ[node] - minZ[node];
+        return 2f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private float unionSurface(int a, int b) {
+        float dx = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+        float dy = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+        float dz = Math.max(maxZ[a], maxZ[b]) - Math.min(minZ[a], minZ[b]);
+        return 2f * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private float boxDistanceSquared(int node, float x, float y, float z) {
+        float dx = Math.max(Math.max(minX[node] - x, 0f), x - maxX[node]);
+        float dy = Math.max(Math.max(minY[node] - y, 0f), y - maxY[node]);
+        float dz = Math.max(Math.max(minZ[node] - z, 0f), z - maxZ[node]);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static float centerDistanceSquared(GameObject object, float x, float y, float z) {
+        float dx = object.getX() - x;
+        float dy = object.getY() - y;
+        float dz = object.getZ() - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // slab test, infinite inverse directions are handled by the float arithmetic
+    private boolean rayHitsBox(int node, float ox, float oy, float oz, float inverseX, float inverseY, float inverseZ, float maxDistance) {
+        float t1 = (minX[node] - ox) * inverseX;
+        float t2 = (maxX[node] - ox) * inverseX;
+        float near = Math.min(t1, t2);
+        float far = Math.max(t1, t2);
+        t1 = (minY[node] - oy) * inverseY;
+        t2 = (maxY[node] - oy) * inverseY;
+        near = Math.max(near, Math.min(t1, t2));
+        far = Math.min(far, Math.max(t1, t2));
+        t1 = (minZ[node] - oz) * inverseZ;
+        t2 = (maxZ[node] - oz) * inverseZ;
+        near = Math.max(near, Math.min(t1, t2));
+        far = Math.min(far, Math.max(t1, t2));
+        // NaN from 0 * infinity fails these comparisons, so rays within the slab planes are kept
+        return !(far < Math.max(near, 0f)) && !(near > maxDistance);
+    }
+
+    // distance along the normalized ray to the sphere, 0 if the origin is inside and -1 if it misses
+    private static float raySphere(GameObject object, float ox, float oy, float oz, float dx, float dy, float dz) {
+        float mx = ox - object.getX();
+        float my = oy - object.getY();
+        float mz = oz - object.getZ();
+        float r = object.getRadius();
+        float c = mx * mx + my * my + mz * mz - r * r;
+        if(c <= 0) {
+            return 0f;
+        }
+        float b = mx * dx + my * dy + mz * dz;
+        if(b > 0) {
+            return -1f;
+        }
+        float discriminant = b * b - c;
+        if(discriminant < 0) {
+            return -1f;
+        }
+        return -b - (float) Math.sqrt(discriminant);
+    }
+
+    private int push(int top, int node) {
+        if(top == stack.length) {
+            int[] grown = new int[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, top);
+            stack = grown;
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    private int heapPush(int size, int node, float key) {
+        if(size == heapNodes.length) {
+            int[] grownNodes = new int[size * 2];
+            float[] grownKeys = new float[size * 2];
+            System.arraycopy(heapNodes, 0, grownNodes, 0, size);
+            System.arraycopy(heapKeys, 0, grownKeys, 0, size);
+            heapNodes = grownNodes;
+            heapKeys = grownKeys;
+        }
+        int i = size;
+        while(i > 0) {
+            int up = (i - 1) / 2;
+            if(heapKeys[up] <= key) {
+                break;
+            }
+            heapNodes[i] = heapNodes[up];
+            heapKeys[i] = heapKeys[up];
+            i = up;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+        return size + 1;
+    }
+
+    private int heapPop(int size) {
+        size--;
+        int node = heapNodes[size];
+        float key = heapKeys[size];
+        int i = 0;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size) {
+                break;
+            }
+            if(child + 1 < size && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if(heapKeys[child] >= key) {
+                break;
+            }
+            heapNodes[i] = heapNodes[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+        return size;
+    }
+
+    private int allocateNode() {
+        if(freeList == NULL) {
+            grow();
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        objects[node] = null;
+        height[node] = -1;
+        parent[node] = freeList;
+        freeList = node;
+    }
+
+    private void allocate(int capacity) {
+        minX = new float[capacity];
+        minY = new float[capacity];
+        minZ = new float[capacity];
+        maxX = new float[capacity];
+        maxY = new float[capacity];
+        maxZ = new float[capacity];
+        parent = new int[capacity];
+        child1 = new int[capacity];
+        child2 = new int[capacity];
+        height = new int[capacity];
+        objects = new Object[capacity];
+        root = NULL;
+        freeList = NULL;
+        linkFree(0, capacity);
+    }
+
+    private void grow() {
+        int oldCapacity = parent.length;
+        int capacity = oldCapacity * 2;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        minZ = Arrays.copyOf(minZ, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        maxZ = Arrays.copyOf(maxZ, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        child1 = Arrays.copyOf(child1, capacity);
+        child2 = Arrays.copyOf(child2, capacity);
+        height = Arrays.copyOf(height, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+        linkFree(oldCapacity, capacity);
+    }
+
+    private void linkFree(int from, int to) {
+        for(int i = to - 1; i >= from; i--) {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+    }
+
+    /**
+     * Result of a raycast, reused between queries.
+     */
+    public static class RayHit<T> {
+
+        private T object;
+        private float distance;
+
+        public T getObject() {
+            return object;
+        }
+
+        public float getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package engine.collision;
+
+import engine.objects.GameObject;
+
+import java.util.Arrays;
+
+/**
+ * Narrowphase candidates packed into flat coordinate and radius arrays, so one object can be tested
+ * against all of them in a single loop without touching the objects themselves.
+ * Works in the xz plane like GameObject.collides.
+ */
+public class CollisionBatch {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private float[] x;
+    private float[] z;
+    private float[] radius;
+    private GameObject[] objects;
+    private int size;
+    private float firstTime;
+
+    public CollisionBatch() {
+        x = new float[INITIAL_CAPACITY];
+        z = new float[INITIAL_CAPACITY];
+        radius = new float[INITIAL_CAPACITY];
+        objects = new GameObject[INITIAL_CAPACITY];
+    }
+
+    public void clear() {
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    public void add(GameObject object) {
+        add(object, object.getX(), object.getZ(), object.getRadius());
+    }
+
+    public void add(GameObject object, float objectX, float objectZ, float objectRadius) {
+        if(size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            z = Arrays.copyOf(z, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        x[size] = objectX;
+        z[size] = objectZ;
+        radius[size] = objectRadius;
+        objects[size] = object;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public GameObject get(int index) {
+        return objects[index];
+    }
+
+    /**
+     * Index of the first candidate overlapping the circle, or -1.
+     */
+    public int firstOverlap(float px, float pz, float r) {
+        for(int i = 0; i < size; i++) {
+            float dx = px - x[i];
+            float dz = pz - z[i];
+            float reach = r + radius[i];
+            if(dx * dx + dz * dz < reach * reach) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sweeps a circle from one position to another and returns the index of the candidate it touches first,
+     * or -1. Ties go to the candidate added first, the ignored object is skipped. Same test as GameObject.timeOfImpact.
+     * Beats calling timeOfImpact per candidate from a single candidate up, so there is no small count fallback.
+     */
+    public int firstImpact(float fromX, float fromZ, float toX, float toZ, float r, GameObject ignored) {
+        float moveX = toX - fromX;
+        float moveZ = toZ - fromZ;
+        float a = moveX * moveX + moveZ * moveZ;
+
+        // cheap rejections first, the square root is only taken for candidates the sweep really reaches
+        int first = -1;
+        firstTime = Float.POSITIVE_INFINITY;
+        for(int i = 0; i < size; i++) {
+            if(objects[i] == ignored) {
+                continue;
+            }
+            float startX = fromX - x[i];
+            float startZ = fromZ - z[i];
+            float reach = r + radius[i];
+            float c = startX * startX + startZ * startZ - reach * reach;
+            if(c < 0) {
+                if(firstTime > 0f) {
+                    first = i;
+                    firstTime = 0f;
+                }
+                continue;
+            }
+            float b = startX * moveX + startZ * moveZ;
+            if(a == 0 || b >= 0) {
+                continue;
+            }
+            float discriminant = b * b - a * c;
+            if(discriminant <= 0) {
+                continue;
+            }
+            float time = (-b - (float) Math.sqrt(discriminant)) / a;
+            if(time <= 1f && time < firstTime) {
+                first = i;
+                firstTime = time;
+            }
+        }
+        return first;
+    }
+
+    // time of the contact found by the last firstImpact
+    public float getFirstTime() {
+        return firstTime;
+    }
+}
@@ -0,0 +1,29 @@
+package engine.collision;
+
+/**
+ * Collision layers and masks. Every object sits on one layer and collides with the layers in its mask,
+ * a pair is only tested if both accept each other. Teams additionally let missiles skip friendly ships.
+ */
+public final class CollisionFilter {
+
+    public static final int NONE = 0;
+    public static final int DEFAULT = 1;
+    public static final int SHIPS = 1 << 1;
+    public static final int OBSTACLES = 1 << 2;
+    public static final int MISSILES = 1 << 3;
+    public static final int ALL = -1;
+
+    public static final int NO_TEAM = 0;
+
+    private CollisionFilter() {
+    }
+
+    public static boolean accepts(int layer, int mask, int otherLayer, int otherMask) {
+        return (mask & otherLayer) != 0 && (otherMask & layer) != 0;
+    }
+
+    // objects of the ignored team are skipped, unless it is NO_TEAM
+    public static boolean accepts(int layer, int mask, int ignoredTeam, int otherLayer, int otherMask, int otherTeam) {
+        return accepts(layer, mask, otherLayer, otherMask) && (ignoredTeam == NO_TEAM || ignoredTeam != otherTeam);
+    }
+}
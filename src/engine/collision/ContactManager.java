@@ -0,0 +1,130 @@
+package engine.collision;
+
+import engine.objects.GameObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which pairs of objects touch across ticks. Every tick the detected overlaps are reported
+ * between beginTick and endTick, the manager turns them into enter, stay and exit events.
+ * Pairs are ordered, the first object is the one reacting to the contact.
+ */
+public class ContactManager {
+
+    private final ContactListener listener;
+    private final Map<Key, Contact> contacts;
+    // reused to look up existing pairs without allocating
+    private final Key probe;
+    private int generation;
+
+    public ContactManager(ContactListener listener) {
+        this.listener = listener;
+        contacts = new LinkedHashMap<>();
+        probe = new Key(null, null);
+    }
+
+    public void beginTick() {
+        generation++;
+    }
+
+    public void report(GameObject first, GameObject second) {
+        probe.first = first;
+        probe.second = second;
+        Contact contact = contacts.get(probe);
+        probe.first = null;
+        probe.second = null;
+        if(contact == null) {
+            contact = new Contact(first, second, generation);
+            contacts.put(new Key(first, second), contact);
+            listener.onEnter(first, second);
+        } else if(contact.generation != generation) {
+            contact.generation = generation;
+            contact.ticks++;
+            listener.onStay(first, second, contact.ticks);
+        }
+    }
+
+    /**
+     * Ends every contact that wasn't reported since beginTick.
+     */
+    public void endTick() {
+        Iterator<Contact> iterator = contacts.values().iterator();
+        while(iterator.hasNext()) {
+            Contact contact = iterator.next();
+            if(contact.generation != generation) {
+                iterator.remove();
+                listener.onExit(contact.first, contact.second);
+            }
+        }
+    }
+
+    public boolean isTouching(GameObject first, GameObject second) {
+        probe.first = first;
+        probe.second = second;
+        boolean touching = contacts.containsKey(probe);
+        probe.first = null;
+        probe.second = null;
+        return touching;
+    }
+
+    public int size() {
+        return contacts.size();
+    }
+
+    public void clear() {
+        contacts.clear();
+    }
+
+    public interface ContactListener {
+
+        default void onEnter(GameObject first, GameObject second) {
+        }
+
+        // ticks counts the ticks since the contact began
+        default void onStay(GameObject first, GameObject second, int ticks) {
+        }
+
+        default void onExit(GameObject first, GameObject second) {
+        }
+    }
+
+    private static class Contact {
+        private final GameObject first;
+        private final GameObject second;
+        private int generation;
+        private int ticks;
+
+        private Contact(GameObject first, GameObject second, int generation) {
+            this.first = first;
+            this.second = second;
+            this.generation = generation;
+        }
+    }
+
+    // identity of both objects, game objects don't override equals
+    private static class Key {
+        private GameObject first;
+        private GameObject second;
+
+        private Key(GameObject first, GameObject second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return first == other.first && second == other.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(first) + System.identityHashCode(second);
+        }
+    }
+}
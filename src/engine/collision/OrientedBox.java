@@ -0,0 +1,49 @@
+package engine.collision;
+
+/**
+ * Overlap tests for rectangles rotated in the xz plane. A box is given by its center, the cosine and sine
+ * of its heading and its half extents along and across the heading. Everything is passed as primitives,
+ * so the tests also work on packed arrays.
+ */
+public final class OrientedBox {
+
+    private OrientedBox() {
+    }
+
+    public static boolean overlapsCircle(float centerX, float centerZ, float cos, float sin, float halfLength, float halfWidth,
+                                         float circleX, float circleZ, float radius) {
+        // circle center in box space, then distance to the closest point of the box
+        float dx = circleX - centerX;
+        float dz = circleZ - centerZ;
+        float along = dx * cos + dz * sin;
+        float across = dz * cos - dx * sin;
+        float outsideAlong = Math.max(Math.abs(along) - halfLength, 0f);
+        float outsideAcross = Math.max(Math.abs(across) - halfWidth, 0f);
+        return outsideAlong * outsideAlong + outsideAcross * outsideAcross < radius * radius;
+    }
+
+    /**
+     * Separating axis test, the axes of both boxes are the only candidates in 2d.
+     */
+    public static boolean overlapsBox(float centerX1, float centerZ1, float cos1, float sin1, float halfLength1, float halfWidth1,
+                                      float centerX2, float centerZ2, float cos2, float sin2, float halfLength2, float halfWidth2) {
+        float dx = centerX2 - centerX1;
+        float dz = centerZ2 - centerZ1;
+        // cosine and sine of the relative rotation
+        float cos = Math.abs(cos1 * cos2 + sin1 * sin2);
+        float sin = Math.abs(cos1 * sin2 - sin1 * cos2);
+
+        // axes of the first box
+        if(Math.abs(dx * cos1 + dz * sin1) >= halfLength1 + halfLength2 * cos + halfWidth2 * sin) {
+            return false;
+        }
+        if(Math.abs(dz * cos1 - dx * sin1) >= halfWidth1 + halfLength2 * sin + halfWidth2 * cos) {
+            return false;
+        }
+        // axes of the second box
+        if(Math.abs(dx * cos2 + dz * sin2) >= halfLength2 + halfLength1 * cos + halfWidth1 * sin) {
+            return false;
+        }
+        return Math.abs(dz * cos2 - dx * sin2) < halfWidth2 + halfLength1 * sin + halfWidth1 * cos;
+    }
+}
@@ -0,0 +1,292 @@
+package engine.collision;
+
+import engine.objects.GameObject;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid broadphase in the xz plane, which is the plane GameObject.collides works in.
+ * Every object is stored in all cells its bounding square touches and only moves between cells
+ * when it crosses a cell border. Queries return candidates, the exact test is left to the caller.
+ * Each proxy caches the collision filter of its object, so filtered queries skip impossible pairs early.
+ * Queries don't change the grid and may run concurrently, but not together with insert, update or remove.
+ */
+public class SpatialHash<T extends GameObject> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final float inverseCellSize;
+    private final Map<T, Proxy<T>> proxies;
+
+    // open addressing table from packed cell coordinates to cells
+    private long[] keys;
+    private Cell<T>[] cells;
+    private int usedSlots;
+
+    public SpatialHash(float cellSize) {
+        if(cellSize <= 0) {
+            throw new IllegalArgumentException("cell size must be positive");
+        }
+        inverseCellSize = 1f / cellSize;
+        proxies = new IdentityHashMap<>();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public void insert(T object) {
+        if(proxies.containsKey(object)) {
+            update(object);
+            return;
+        }
+        Proxy<T> proxy = new Proxy<>(object);
+        proxies.put(object, proxy);
+        setBounds(proxy, object);
+        link(proxy);
+    }
+
+    /**
+     * Moves the object to the cells of its current position. Cheap if it stayed within its cells.
+     */
+    public void update(T object) {
+        Proxy<T> proxy = proxies.get(object);
+        if(proxy == null) {
+            insert(object);
+            return;
+        }
+        float x = object.getX();
+        float z = object.getZ();
+        float radius = object.getRadius();
+        if(cell(x - radius) == proxy.minX && cell(x + radius) == proxy.maxX
+                && cell(z - radius) == proxy.minZ && cell(z + radius) == proxy.maxZ) {
+            proxy.x = x;
+            proxy.z = z;
+            proxy.radius = radius;
+            setFilter(proxy, object);
+            return;
+        }
+        unlink(proxy);
+        setBounds(proxy, object);
+        link(proxy);
+    }
+
+    public void remove(T object) {
+        Proxy<T> proxy = proxies.remove(object);
+        if(proxy != null) {
+            unlink(proxy);
+        }
+    }
+
+    public boolean contains(T object) {
+        return proxies.containsKey(object);
+    }
+
+    public int size() {
+        return proxies.size();
+    }
+
+    public void clear() {
+        proxies.clear();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds the objects the given object can collide with according to the collision layers and masks.
+     */
+    public List<T> query(GameObject object, List<T> result) {
+        collect(object.getX(), object.getZ(), object.getRadius(),
+                object.getCollisionLayer(), object.getCollisionMask(), CollisionFilter.NO_TEAM, result, null);
+        return result;
+    }
+
+    /**
+     * Adds every object whose cells overlap the square around the given circle to result, each once.
+     */
+    public List<T> query(float x, float z, float radius, List<T> result) {
+        collect(x, z, radius, CollisionFilter.ALL, CollisionFilter.ALL, CollisionFilter.NO_TEAM, result, null);
+        return result;
+    }
+
+    /**
+     * Packs the candidates accepted by the filter into a batch for the narrowphase. Uses the positions
+     * of the last insert or update, so the objects themselves aren't touched.
+     */
+    public CollisionBatch query(float x, float z, float radius, int layer, int mask, int ignoredTeam, CollisionBatch batch) {
+        collect(x, z, radius, layer, mask, ignoredTeam, null, batch);
+        return batch;
+    }
+
+    // filtering happens here, so rejected pairs never reach a distance test
+    private void collect(float x, float z, float radius, int layer, int mask, int ignoredTeam, List<T> result, CollisionBatch batch) {
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+        for(int cx = minX; cx <= maxX; cx++) {
+            for(int cz = minZ; cz <= maxZ; cz++) {
+                Cell<T> cell = find(key(cx, cz));
+                if(cell == null) {
+                    continue;
+                }
+                List<Proxy<T>> cellProxies = cell.proxies;
+                for(int i = 0; i < cellProxies.size(); i++) {
+                    Proxy<T> proxy = cellProxies.get(i);
+                    // a proxy spanning several cells is only taken in the first cell it shares with the query
+                    if(cx != Math.max(minX, proxy.minX) || cz != Math.max(minZ, proxy.minZ)) {
+                        continue;
+                    }
+                    if(!CollisionFilter.accepts(layer, mask, ignoredTeam, proxy.layer, proxy.mask, proxy.team)) {
+                        continue;
+                    }
+                    if(result != null) {
+                        result.add(proxy.object);
+                    } else {
+                        batch.add(proxy.object, proxy.x, proxy.z, proxy.radius);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    private void setBounds(Proxy<T> proxy, T object) {
+        float x = object.getX();
+        float z = object.getZ();
+        float radius = object.getRadius();
+        proxy.x = x;
+        proxy.z = z;
+        proxy.radius = radius;
+        setFilter(proxy, object);
+        proxy.minX = cell(x - radius);
+        proxy.maxX = cell(x + radius);
+        proxy.minZ = cell(z - radius);
+        proxy.maxZ = cell(z + radius);
+    }
+
+    private static <T extends GameObject> void setFilter(Proxy<T> proxy, T object) {
+        proxy.layer = object.getCollisionLayer();
+        proxy.mask = object.getCollisionMask();
+        proxy.team = object.getTeam();
+    }
+
+    private void link(Proxy<T> proxy) {
+        for(int cx = proxy.minX; cx <= proxy.maxX; cx++) {
+            for(int cz = proxy.minZ; cz <= proxy.maxZ; cz++) {
+                findOrCreate(key(cx, cz)).proxies.add(proxy);
+            }
+        }
+    }
+
+    private void unlink(Proxy<T> proxy) {
+        for(int cx = proxy.minX; cx <= proxy.maxX; cx++) {
+            for(int cz = proxy.minZ; cz <= proxy.maxZ; cz++) {
+                Cell<T> cell = find(key(cx, cz));
+                if(cell != null) {
+                    cell.proxies.remove(proxy);
+                }
+            }
+        }
+    }
+
+    private static long key(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Cell<T> find(long key) {
+        int mask = keys.length - 1;
+        for(int slot = hash(key) & mask; cells[slot] != null; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                return cells[slot];
+            }
+        }
+        return null;
+    }
+
+    private Cell<T> findOrCreate(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for(; cells[slot] != null; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                return cells[slot];
+            }
+        }
+        if((usedSlots + 1) * 2 > keys.length) {
+            rehash();
+            return findOrCreate(key);
+        }
+        Cell<T> cell = new Cell<>();
+        keys[slot] = key;
+        cells[slot] = cell;
+        usedSlots++;
+        return cell;
+    }
+
+    // empty cells stay in the table until the next rehash, which drops them
+    private void rehash() {
+        long[] oldKeys = keys;
+        Cell<T>[] oldCells = cells;
+        int live = 0;
+        for(Cell<T> cell : oldCells) {
+            if(cell != null && !cell.proxies.isEmpty()) {
+                live++;
+            }
+        }
+        int capacity = INITIAL_CAPACITY;
+        while(capacity < (live + 1) * 4) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+        int mask = capacity - 1;
+        for(int i = 0; i < oldCells.length; i++) {
+            Cell<T> cell = oldCells[i];
+            if(cell == null || cell.proxies.isEmpty()) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while(cells[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            cells[slot] = cell;
+            usedSlots++;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        cells = (Cell<T>[]) new Cell[capacity];
+        usedSlots = 0;
+    }
+
+    private static class Cell<T extends GameObject> {
+        private final List<Proxy<T>> proxies = new ArrayList<>(4);
+    }
+
+    private static class Proxy<T extends GameObject> {
+        private final T object;
+        private int minX;
+        private int maxX;
+        private int minZ;
+        private int maxZ;
+        private float x;
+        private float z;
+        private float radius;
+        private int layer;
+        private int mask;
+        private int team;
+
+        private Proxy(T object) {
+            this.object = object;
+        }
+    }
+}
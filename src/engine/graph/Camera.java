@@ -6,15 +6,42 @@ public class Camera {
 
     protected final Vector3f position;
     protected final Vector3f rotation;
+    protected final Vector3f previousPosition;
+    protected final Vector3f previousRotation;
+
+    // sine and cosine of the heading, only recomputed when rotation.y changed
+    private float cachedHeading = Float.NaN;
+    private float headingSin;
+    private float headingCos;
 
     public Camera() {
         position = new Vector3f(0, 0, 0);
         rotation = new Vector3f(0, 0, 0);
+        previousPosition = new Vector3f(0, 0, 0);
+        previousRotation = new Vector3f(0, 0, 0);
     }
 
     public Camera(Vector3f position, Vector3f rotation, Vector3f pivot) {
         this.position = position;
         this.rotation = rotation;
+        previousPosition = new Vector3f(position);
+        previousRotation = new Vector3f(rotation);
+    }
+
+    /**
+     * Remember the current position and rotation as the state of the previous tick.
+     */
+    public void storePreviousTransform() {
+        previousPosition.set(position);
+        previousRotation.set(rotation);
+    }
+
+    public Vector3f getPreviousPosition() {
+        return previousPosition;
+    }
+
+    public Vector3f getPreviousRotation() {
+        return previousRotation;
     }
 
     public Vector3f getPosition() {
@@ -28,13 +55,23 @@ public class Camera {
     }
 
     public void movePosition(float offsetX, float offsetY, float offsetZ) {
+        if(offsetZ == 0 && offsetX == 0) {
+            position.y += offsetY;
+            return;
+        }
+        if(cachedHeading != rotation.y) {
+            cachedHeading = rotation.y;
+            headingSin = (float) Math.sin(Math.toRadians(rotation.y));
+            headingCos = (float) Math.cos(Math.toRadians(rotation.y));
+        }
         if(offsetZ != 0) {
-            position.x += (float) Math.sin(Math.toRadians(rotation.y)) * -1.0f * offsetZ;
-            position.z += (float) Math.cos(Math.toRadians(rotation.y)) * offsetZ;
+            position.x += headingSin * -1.0f * offsetZ;
+            position.z += headingCos * offsetZ;
         }
+        // sin(y - 90) is -cos(y) and cos(y - 90) is sin(y)
         if(offsetX != 0) {
-            position.x += (float) Math.sin(Math.toRadians(rotation.y -90)) * -1.0f * offsetX;
-            position.z += (float) Math.cos(Math.toRadians(rotation.y - 90)) * offsetX;
+            position.x += headingCos * offsetX;
+            position.z += headingSin * offsetX;
         }
         position.y += offsetY;
     }
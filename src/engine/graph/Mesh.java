@@ -10,6 +10,7 @@ import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
@@ -153,6 +154,15 @@ public class Mesh {
         }
     }
 
+    public void renderList(int count, IntConsumer consumer) {
+        initRender();
+
+        for (int i = 0; i < count; i++) {
+            consumer.accept(i);
+            glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        }
+    }
+
     public void cleanup() {
         glDisableVertexAttribArray(0);
 
@@ -6,9 +6,6 @@ import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 
-import java.util.List;
-import java.util.Map;
-
 import static org.lwjgl.opengl.GL11.*;
 
 public class Renderer {
@@ -25,10 +22,14 @@ public class Renderer {
 
     private Transformation transformation;
     private float specularPower;
+    private final Vector3f cameraPosition;
+    private final Vector3f cameraRotation;
 
     public Renderer() {
         transformation = new Transformation();
         specularPower = 10f;
+        cameraPosition = new Vector3f();
+        cameraRotation = new Vector3f();
     }
 
     public void init(Window window) throws Exception {
@@ -85,20 +86,26 @@ public class Renderer {
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
     }
 
-    public void render(Window window, Camera camera, Scene scene, IHud hud) {
+    /**
+     * Render a snapshot of the scene.
+     * @param alpha progress between the previous (0) and the current tick (1) of the snapshot
+     */
+    public void render(Window window, RenderSnapshot snapshot, float alpha, IHud hud) {
         clear();
 
         if(window.isResized()) {
             glViewport(0, 0, window.getWidth(), window.getHeight());
             window.setResized(false);
         }
-        renderScene(window, camera, scene);
+        snapshot.getPreviousCameraPosition().lerp(snapshot.getCameraPosition(), alpha, cameraPosition);
+        snapshot.getPreviousCameraRotation().lerp(snapshot.getCameraRotation(), alpha, cameraRotation);
+        renderScene(window, snapshot, alpha);
         // TODO: FIX the skybox moves faster than the ship it is centered on. temporarily, it will be treated as a gameobject until fixed
-        //renderSkyBox(window, camera, scene);
+        //renderSkyBox(window, snapshot);
         renderHud(window, hud);
     }
 
-    private void renderScene(Window window, Camera camera, Scene scene) {
+    private void renderScene(Window window, RenderSnapshot snapshot, float alpha) {
         shader.bind();
 
         // update projection matrix
@@ -107,18 +114,25 @@ public class Renderer {
         shader.setUniforms("texture_sampler", 0);
 
         // update view matrix
-        Matrix4f viewMatrix = transformation.updateViewMatrix(camera);
+        Matrix4f viewMatrix = transformation.updateViewMatrix(cameraPosition, cameraRotation);
 
         // update light uniforms
-        renderLights(viewMatrix, scene.getSceneLight());
+        renderLights(viewMatrix, snapshot.getSceneLight());
         shader.setUniforms("texture_sampler", 0);
 
         // render game objects
-        Map<Mesh, List<GameObject>> mapMeshes = scene.getGameMeshes();
-        for(Mesh mesh : mapMeshes.keySet()) {
+        for(RenderSnapshot.MeshBatch batch : snapshot.getBatches()) {
+            Mesh mesh = batch.getMesh();
+            float[] transforms = batch.getTransforms();
+            float[] matrices = batch.getMatrices();
             shader.setUniforms("material", mesh.getMaterial());
-            mesh.renderList(mapMeshes.get(mesh), (GameObject gameObject) -> {
-                Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(gameObject, viewMatrix);
+            mesh.renderList(batch.size(), (int i) -> {
+                Matrix4f modelViewMatrix;
+                if(batch.isStill(i)) {
+                    modelViewMatrix = transformation.buildModelViewMatrix(matrices, i * RenderSnapshot.MeshBatch.MATRIX_STRIDE, viewMatrix);
+                } else {
+                    modelViewMatrix = transformation.buildModelViewMatrix(transforms, i * RenderSnapshot.MeshBatch.STRIDE, alpha, viewMatrix);
+                }
                 shader.setUniforms("modelViewMatrix", modelViewMatrix);
             });
         }
@@ -126,7 +140,11 @@ public class Renderer {
         shader.unbind();
     }
 
-    private void renderSkyBox(Window window, Camera camera, Scene scene) {
+    private void renderSkyBox(Window window, RenderSnapshot snapshot) {
+        Mesh skyBoxMesh = snapshot.getSkyBoxMesh();
+        if(skyBoxMesh == null) {
+            return;
+        }
         skyBoxShader.bind();
 
         skyBoxShader.setUniforms("texture_sampler", 0);
@@ -134,16 +152,15 @@ public class Renderer {
         // Update projection Matrix
         Matrix4f projectionMatrix = transformation.updateProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
         skyBoxShader.setUniforms("projectionMatrix", projectionMatrix);
-        SkyBox skyBox = scene.getSkyBox();
-        Matrix4f viewMatrix = transformation.updateViewMatrix(camera);
+        Matrix4f viewMatrix = transformation.updateViewMatrix(cameraPosition, cameraRotation);
         viewMatrix.m30(0);
         viewMatrix.m31(0);
         viewMatrix.m32(0);
-        Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(skyBox, viewMatrix);
+        Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(snapshot.getSkyBoxMatrix(), 0, viewMatrix);
         skyBoxShader.setUniforms("modelViewMatrix", modelViewMatrix);
-        skyBoxShader.setUniforms("ambientLight", scene.getSceneLight().getAmbientLight());
+        skyBoxShader.setUniforms("ambientLight", snapshot.getSceneLight().getAmbientLight());
 
-        scene.getSkyBox().getMesh().render();
+        skyBoxMesh.render();
 
         skyBoxShader.unbind();
     }
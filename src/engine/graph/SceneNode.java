@@ -0,0 +1,176 @@
+package engine.graph;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Node of a transform hierarchy. Translation, rotation and scale are relative to the parent, the local
+ * and world matrices are cached and only rebuilt after the node or one of its ancestors changed.
+ * Setting a value equal to the current one doesn't invalidate anything, so nodes that don't move cost
+ * nothing once their matrices are built.
+ * Not thread safe.
+ */
+public class SceneNode {
+
+    private SceneNode parent;
+    private final List<SceneNode> children;
+
+    private final Vector3f translation;
+    private final Quaternionf rotation;
+    private float scale;
+
+    private final Matrix4f localMatrix;
+    private final Matrix4f worldMatrix;
+    private boolean localDirty;
+    // a dirty node only has dirty descendants, so invalidating can stop at the first dirty node
+    private boolean worldDirty;
+
+    public SceneNode() {
+        children = new ArrayList<>(2);
+        translation = new Vector3f();
+        rotation = new Quaternionf();
+        scale = 1f;
+        localMatrix = new Matrix4f();
+        worldMatrix = new Matrix4f();
+        localDirty = true;
+        worldDirty = true;
+    }
+
+    public SceneNode(float x, float y, float z) {
+        this();
+        translation.set(x, y, z);
+    }
+
+    /**
+     * Attaches the child to this node, detaching it from its current parent first.
+     */
+    public void addChild(SceneNode child) {
+        for(SceneNode ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+            if(ancestor == child) {
+                throw new IllegalArgumentException("a node can't be its own ancestor");
+            }
+        }
+        if(child.parent != null) {
+            child.parent.children.remove(child);
+        }
+        child.parent = this;
+        children.add(child);
+        child.invalidateWorld();
+    }
+
+    public boolean removeChild(SceneNode child) {
+        if(child.parent != this) {
+            return false;
+        }
+        children.remove(child);
+        child.parent = null;
+        child.invalidateWorld();
+        return true;
+    }
+
+    public SceneNode getParent() {
+        return parent;
+    }
+
+    public List<SceneNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    public Vector3f getTranslation(Vector3f dest) {
+        return dest.set(translation);
+    }
+
+    public void setTranslation(float x, float y, float z) {
+        if(translation.x == x && translation.y == y && translation.z == z) {
+            return;
+        }
+        translation.set(x, y, z);
+        invalidateLocal();
+    }
+
+    public Quaternionf getRotation(Quaternionf dest) {
+        return dest.set(rotation);
+    }
+
+    public void setRotation(float x, float y, float z, float w) {
+        if(rotation.x == x && rotation.y == y && rotation.z == z && rotation.w == w) {
+            return;
+        }
+        rotation.set(x, y, z, w);
+        invalidateLocal();
+    }
+
+    public void setRotation(Quaternionfc rotation) {
+        setRotation(rotation.x(), rotation.y(), rotation.z(), rotation.w());
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public void setScale(float scale) {
+        if(this.scale == scale) {
+            return;
+        }
+        this.scale = scale;
+        invalidateLocal();
+    }
+
+    /**
+     * Transformation relative to the parent. The matrix is cached, don't change it.
+     */
+    public Matrix4f getLocalMatrix() {
+        if(localDirty) {
+            localMatrix.translationRotateScale(translation.x, translation.y, translation.z,
+                    rotation.x, rotation.y, rotation.z, rotation.w, scale);
+            localDirty = false;
+        }
+        return localMatrix;
+    }
+
+    /**
+     * Transformation to world space, rebuilding the dirty part of the path from the root.
+     * The matrix is cached, don't change it.
+     */
+    public Matrix4f getWorldMatrix() {
+        if(worldDirty) {
+            if(parent == null) {
+                worldMatrix.set(getLocalMatrix());
+            } else {
+                // all nodes are affine, which saves the projective part of the product
+                parent.getWorldMatrix().mulAffine(getLocalMatrix(), worldMatrix);
+            }
+            worldDirty = false;
+        }
+        return worldMatrix;
+    }
+
+    public Vector3f getWorldPosition(Vector3f dest) {
+        return getWorldMatrix().getTranslation(dest);
+    }
+
+    public boolean isDirty() {
+        return worldDirty;
+    }
+
+    private void invalidateLocal() {
+        localDirty = true;
+        invalidateWorld();
+    }
+
+    private void invalidateWorld() {
+        if(worldDirty) {
+            return;
+        }
+        worldDirty = true;
+        for(int i = 0; i < children.size(); i++) {
+            children.get(i).invalidateWorld();
+        }
+    }
+}
@@ -36,8 +36,10 @@ public class Transformation {
     }
 
     public Matrix4f updateViewMatrix(Camera camera) {
-        Vector3f position = camera.getPosition();
-        Vector3f rotation = camera.getRotation();
+        return updateViewMatrix(camera.getPosition(), camera.getRotation());
+    }
+
+    public Matrix4f updateViewMatrix(Vector3f position, Vector3f rotation) {
         viewMatrix.identity();
         viewMatrix.rotate((float) Math.toRadians(rotation.x), new Vector3f(1, 0, 0)).rotate((float) Math.toRadians(rotation.y), new Vector3f(0, 1, 0));
         viewMatrix.translate(-position.x, -position.y, -position.z);
@@ -50,26 +52,51 @@ public class Transformation {
         return orthoMatrix;
     }
 
+    /**
+     * Build the model view matrix from the cached model matrix of an object. Only for objects of the calling
+     * thread, the renderer gets simulated objects through the snapshot.
+     */
     public Matrix4f buildModelViewMatrix(GameObject gameObject, Matrix4f viewMatrix) {
-        Vector3f rotation = gameObject.getRotation();
-        modelMatrix.identity().translate(gameObject.getPosition()).
-                rotateX((float)Math.toRadians(-rotation.x)).
-                rotateY((float)Math.toRadians(-rotation.y)).
-                rotateZ((float)Math.toRadians(-rotation.z)).
-                scale(gameObject.getScale());
+        return viewMatrix.mulAffine(gameObject.getWorldMatrix(), modelViewMatrix);
+    }
+
+    /**
+     * Build the model view matrix from a model matrix packed in column major order.
+     */
+    public Matrix4f buildModelViewMatrix(float[] matrices, int offset, Matrix4f viewMatrix) {
+        modelMatrix.set(matrices, offset);
+        return viewMatrix.mulAffine(modelMatrix, modelViewMatrix);
+    }
+
+    /**
+     * Build the model view matrix from a packed transformation, as stored in a render snapshot.
+     * Position and rotation are interpolated between the previous and the current tick.
+     * @param transforms packed previous position, previous rotation, position, rotation and scale
+     * @param offset index of the first value of the transformation
+     * @param alpha progress between the previous (0) and the current tick (1)
+     * @param viewMatrix current view matrix
+     * @return model view matrix, reused by the next call
+     */
+    public Matrix4f buildModelViewMatrix(float[] transforms, int offset, float alpha, Matrix4f viewMatrix) {
+        modelMatrix.translation(
+                lerp(transforms[offset], transforms[offset + 6], alpha),
+                lerp(transforms[offset + 1], transforms[offset + 7], alpha),
+                lerp(transforms[offset + 2], transforms[offset + 8], alpha)).
+                rotateXYZ((float)Math.toRadians(-lerp(transforms[offset + 3], transforms[offset + 9], alpha)),
+                        (float)Math.toRadians(-lerp(transforms[offset + 4], transforms[offset + 10], alpha)),
+                        (float)Math.toRadians(-lerp(transforms[offset + 5], transforms[offset + 11], alpha))).
+                scale(transforms[offset + 12]);
         modelViewMatrix.set(viewMatrix);
         return modelViewMatrix.mul(modelMatrix);
     }
 
+    // for hud items, which are owned by the render thread
     public Matrix4f buildOrtoProjModelMatrix(GameObject gameObject, Matrix4f orthoMatrix) {
-        Vector3f rotation = gameObject.getRotation();
-        Matrix4f modelMatrix = new Matrix4f();
-        modelMatrix.identity().translate(gameObject.getPosition()).
-                rotateX((float)Math.toRadians(-rotation.x)).
-                rotateY((float)Math.toRadians(-rotation.y)).
-                rotateZ((float)Math.toRadians(-rotation.z)).
-                scale(gameObject.getScale());
         Matrix4f orthoMatrixCurr = new Matrix4f(orthoMatrix);
-        return orthoMatrixCurr.mul(modelMatrix);
+        return orthoMatrixCurr.mul(gameObject.getWorldMatrix());
+    }
+
+    private static float lerp(float previous, float current, float alpha) {
+        return previous + (current - previous) * alpha;
     }
 }
@@ -7,6 +7,10 @@ import org.joml.Vector2f;
 
 import static org.lwjgl.glfw.GLFW.*;
 
+/**
+ * Mouse state in two copies. The glfw callbacks write the first one on the render thread, sample copies it
+ * to the second one, which is all the simulation thread reads.
+ */
 public class MouseInput {
 
     private final Vector2d previousPos;
@@ -18,6 +22,14 @@ public class MouseInput {
     private boolean rightButtonPressed = false;
     private float scrollDiff = 0.0f;
 
+    // written by the callbacks, only touched on the render thread
+    private double polledX;
+    private double polledY;
+    private boolean polledInWindow;
+    private boolean polledLeftButton;
+    private boolean polledRightButton;
+    private float polledScroll;
+
     public MouseInput() {
         previousPos = new Vector2d(-1, -1);
         currentPos = new Vector2d(0, 0);
@@ -26,26 +38,40 @@ public class MouseInput {
 
     public void init(Window window) {
         glfwSetCursorPosCallback(window.getWindowHandle(), (windowHandle, xpos, ypos) -> {
-            currentPos.x = xpos;
-            currentPos.y = ypos;
+            polledX = xpos;
+            polledY = ypos;
         });
         glfwSetCursorEnterCallback(window.getWindowHandle(), (windowHandle, entered) -> {
-            inWindow = entered;
+            polledInWindow = entered;
         });
         glfwSetMouseButtonCallback(window.getWindowHandle(), (windowHandle, button, action, mode) -> {
-            leftButtonPressed = button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS;
-            rightButtonPressed = button == GLFW_MOUSE_BUTTON_2 && action == GLFW_PRESS;
+            polledLeftButton = button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS;
+            polledRightButton = button == GLFW_MOUSE_BUTTON_2 && action == GLFW_PRESS;
         });
         glfwSetScrollCallback(window.getWindowHandle(), (windowHandle, xoffset, yoffset) -> {
-            scrollDiff = (float) yoffset;
+            polledScroll += (float) yoffset;
         });
     }
 
+    /**
+     * Hands the state of the last glfwPollEvents to the simulation thread. Call on the render thread
+     * after polling, scrolling adds up until the simulation resets it.
+     */
+    public synchronized void sample() {
+        currentPos.x = polledX;
+        currentPos.y = polledY;
+        inWindow = polledInWindow;
+        leftButtonPressed = polledLeftButton;
+        rightButtonPressed = polledRightButton;
+        scrollDiff += polledScroll;
+        polledScroll = 0;
+    }
+
     public Vector2f getDisplVec() {
         return displVec;
     }
 
-    public void input(Window window) {
+    public synchronized void input(Window window) {
         displVec.x = 0;
         displVec.y = 0;
         if(previousPos.x > 0 && previousPos.y > 0 && inWindow) {
@@ -64,19 +90,19 @@ public class MouseInput {
         previousPos.y = currentPos.y;
     }
 
-    public boolean isLeftButtonPressed() {
+    public synchronized boolean isLeftButtonPressed() {
         return leftButtonPressed;
     }
 
-    public boolean isRightButtonPressed() {
+    public synchronized boolean isRightButtonPressed() {
         return rightButtonPressed;
     }
 
-    public float getScrollDiff() {
+    public synchronized float getScrollDiff() {
         return scrollDiff;
     }
 
-    public void resetScrollDiff() {
+    public synchronized void resetScrollDiff() {
         scrollDiff = 0;
     }
 }
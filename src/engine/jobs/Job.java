@@ -0,0 +1,90 @@
+package engine.jobs;
+
+import engine.TimingHistogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One system of a {@link TaskGraph}, together with the resources it reads and writes.
+ */
+public class Job {
+
+    private final String name;
+    private final Runnable work;
+    private final List<String> reads;
+    private final List<String> writes;
+    final List<Job> dependents;
+    final AtomicInteger pending;
+    int dependencies;
+
+    private final TimingHistogram timings;
+    private volatile long lastDuration;
+
+    Job(String name, Runnable work, String[] reads, String[] writes) {
+        this.name = name;
+        this.work = work;
+        this.reads = Arrays.asList(reads);
+        this.writes = Arrays.asList(writes);
+        dependents = new ArrayList<>();
+        pending = new AtomicInteger();
+        timings = new TimingHistogram(name);
+    }
+
+    /**
+     * Check if this job has to wait for an earlier job. That is the case when one of them writes
+     * a resource the other one reads or writes.
+     * @param earlier job that was added to the graph before this one
+     * @return true if both jobs must not run at the same time
+     */
+    boolean conflictsWith(Job earlier) {
+        for (String resource : writes) {
+            if (earlier.reads.contains(resource) || earlier.writes.contains(resource)) {
+                return true;
+            }
+        }
+        for (String resource : reads) {
+            if (earlier.writes.contains(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void execute() {
+        long start = System.nanoTime();
+        work.run();
+        lastDuration = System.nanoTime() - start;
+        timings.record(lastDuration);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getReads() {
+        return reads;
+    }
+
+    public List<String> getWrites() {
+        return writes;
+    }
+
+    /**
+     * Get the duration of the last run of this job.
+     * @return duration in nanoseconds
+     */
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    /**
+     * Get the durations of all runs of this job.
+     * @return histogram of durations in nanoseconds
+     */
+    public TimingHistogram getTimings() {
+        return timings;
+    }
+}
@@ -0,0 +1,165 @@
+package engine.jobs;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs task graphs on a work stealing pool. Jobs are submitted as soon as all jobs they depend on
+ * finished, the calling thread waits until the whole graph is done. Graphs that can't overlap, graphs
+ * whose last run was too short to be worth the handoff, or a pool of one thread, run on the calling
+ * thread in the order the jobs were added.
+ */
+public class JobSystem {
+
+    // handing a graph to the pool and waiting for it costs around 15-20 us per run, below this much work
+    // the overlap can't win that back
+    private static final long INLINE_WORK_NANOS = 100_000;
+
+    private final ForkJoinPool pool;
+
+    public JobSystem() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public JobSystem(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Run all jobs of a graph and wait for them to finish.
+     * @param graph graph to run, must not be run by two threads at the same time
+     */
+    public void run(TaskGraph graph) {
+        if (graph.isSequential() || pool.getParallelism() == 1 || graph.getLastDuration() < INLINE_WORK_NANOS) {
+            runInline(graph);
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(graph.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (Job job : graph.getJobs()) {
+            job.pending.set(job.dependencies);
+        }
+        for (Job job : graph.getJobs()) {
+            if (job.dependencies == 0) {
+                submit(job, done, failure);
+            }
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for jobs", ie);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Job failed", failure.get());
+        }
+    }
+
+    // added order respects every dependency, so this is a valid schedule without any handoff
+    private void runInline(TaskGraph graph) {
+        for (Job job : graph.getJobs()) {
+            try {
+                job.execute();
+            } catch (Throwable t) {
+                throw new IllegalStateException("Job failed", t);
+            }
+        }
+    }
+
+    /**
+     * Split a range into chunks and process the chunks in parallel. Returns once all chunks are done.
+     * Called from a job, the calling worker helps with the chunks instead of blocking.
+     * @param size size of the range, starting at 0
+     * @param chunkSize maximum size of a chunk
+     * @param work work done for every chunk
+     */
+    public void parallelFor(int size, int chunkSize, ChunkWork work) {
+        int chunks = chunkCount(size, chunkSize);
+        if (chunks <= 1) {
+            if (size > 0) {
+                work.run(0, 0, size);
+            }
+            return;
+        }
+
+        RecursiveAction[] tasks = new RecursiveAction[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            int from = c * chunkSize;
+            int to = Math.min(from + chunkSize, size);
+            tasks[c] = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    work.run(chunk, from, to);
+                }
+            };
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
+
+    public static int chunkCount(int size, int chunkSize) {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    private void submit(Job job, CountDownLatch done, AtomicReference<Throwable> failure) {
+        pool.execute(() -> {
+            try {
+                // the graph is lost after a failure, later jobs would only work on a broken state
+                if (failure.get() == null) {
+                    job.execute();
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                for (Job dependent : job.dependents) {
+                    if (dependent.pending.decrementAndGet() == 0) {
+                        submit(dependent, done, failure);
+                    }
+                }
+                done.countDown();
+            }
+        });
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public interface ChunkWork {
+
+        /**
+         * Process one chunk of a range.
+         * @param chunk index of the chunk, chunks are numbered in range order
+         * @param from first index of the chunk
+         * @param to index after the last index of the chunk
+         */
+        void run(int chunk, int from, int to);
+    }
+}
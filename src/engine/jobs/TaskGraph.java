@@ -0,0 +1,72 @@
+package engine.jobs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Jobs of one tick and the order they have to keep. A job runs after every earlier added job it
+ * conflicts with, all other jobs may run in parallel. Running the graph therefore has the same
+ * result as running all jobs one after another in the order they were added.
+ */
+public class TaskGraph {
+
+    private final List<Job> jobs;
+    // every job waits for the one added before it, so no two jobs can overlap
+    private boolean sequential;
+
+    public TaskGraph() {
+        jobs = new ArrayList<>();
+        sequential = true;
+    }
+
+    /**
+     * Add a job to the graph.
+     * @param name name of the job, used for timings
+     * @param work work of the job
+     * @param reads resources the job only reads
+     * @param writes resources the job modifies
+     * @return the added job
+     */
+    public Job add(String name, Runnable work, String[] reads, String[] writes) {
+        Job job = new Job(name, work, reads, writes);
+        if (!jobs.isEmpty() && !job.conflictsWith(jobs.get(jobs.size() - 1))) {
+            sequential = false;
+        }
+        for (Job earlier : jobs) {
+            if (job.conflictsWith(earlier)) {
+                earlier.dependents.add(job);
+                job.dependencies++;
+            }
+        }
+        jobs.add(job);
+        return job;
+    }
+
+    public List<Job> getJobs() {
+        return Collections.unmodifiableList(jobs);
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Get the work of the last run, the durations of all jobs added up.
+     * @return duration in nanoseconds, 0 before the first run
+     */
+    public long getLastDuration() {
+        long duration = 0;
+        for (Job job : jobs) {
+            duration += job.getLastDuration();
+        }
+        return duration;
+    }
+
+    /**
+     * @return true if the jobs form a single chain, running them in parallel would gain nothing
+     */
+    public boolean isSequential() {
+        return sequential;
+    }
+}
@@ -0,0 +1,53 @@
+package engine.objects;
+
+import java.util.Arrays;
+
+/**
+ * Missile outcomes found while the missiles are checked for hits, possibly in parallel. Every buffer is
+ * only written by one thread, the hits are applied at a single sync point, buffer by buffer in the order
+ * the missiles were checked, which makes the result independent of the threads.
+ */
+public class CombatBuffer {
+
+    private Missile[] missiles;
+    // target hit by the missile of the same index, null if the missile ran out of range
+    private GameObject[] targets;
+    private int count;
+
+    public CombatBuffer() {
+        missiles = new Missile[16];
+        targets = new GameObject[16];
+    }
+
+    public void hit(Missile missile, GameObject target) {
+        if(count == missiles.length) {
+            missiles = Arrays.copyOf(missiles, count * 2);
+            targets = Arrays.copyOf(targets, count * 2);
+        }
+        missiles[count] = missile;
+        targets[count] = target;
+        count++;
+    }
+
+    public void expire(Missile missile) {
+        hit(missile, null);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Missile getMissile(int index) {
+        return missiles[index];
+    }
+
+    public GameObject getTarget(int index) {
+        return targets[index];
+    }
+
+    public void clear() {
+        Arrays.fill(missiles, 0, count, null);
+        Arrays.fill(targets, 0, count, null);
+        count = 0;
+    }
+}
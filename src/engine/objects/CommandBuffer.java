@@ -0,0 +1,100 @@
+package engine.objects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spawns and despawns recorded while a list of game objects is processed, possibly in parallel.
+ * Every buffer is only written by one thread, the list itself is changed at a single sync point
+ * by {@link #applyAll(List, CommandBuffer...)}.
+ */
+public class CommandBuffer {
+
+    private final List<GameObject> spawns;
+    private int[] despawns;
+    private int despawnCount;
+
+    public CommandBuffer() {
+        spawns = new ArrayList<>();
+        despawns = new int[16];
+    }
+
+    public void spawn(GameObject gameObject) {
+        spawns.add(gameObject);
+    }
+
+    public void spawnAll(List<? extends GameObject> gameObjects) {
+        spawns.addAll(gameObjects);
+    }
+
+    /**
+     * Record the removal of a game object.
+     * @param index index of the game object in the list, must be higher than the previous recorded index
+     */
+    public void despawn(int index) {
+        if (despawnCount == despawns.length) {
+            int[] grown = new int[despawns.length * 2];
+            System.arraycopy(despawns, 0, grown, 0, despawnCount);
+            despawns = grown;
+        }
+        despawns[despawnCount++] = index;
+    }
+
+    public int getSpawnCount() {
+        return spawns.size();
+    }
+
+    public GameObject getSpawn(int position) {
+        return spawns.get(position);
+    }
+
+    public int getDespawnCount() {
+        return despawnCount;
+    }
+
+    // list index of the despawn recorded at the given position
+    public int getDespawn(int position) {
+        return despawns[position];
+    }
+
+    public boolean isEmpty() {
+        return spawns.isEmpty() && despawnCount == 0;
+    }
+
+    public void clear() {
+        spawns.clear();
+        despawnCount = 0;
+    }
+
+    /**
+     * Apply buffers to a list and clear them. All despawns are removed in one pass, then the spawns
+     * are appended in buffer order, so the result does not depend on which thread filled which buffer.
+     * @param gameObjects list the commands were recorded for
+     * @param buffers buffers in range order, their despawn indices must be ascending across all buffers
+     */
+    public static void applyAll(List<GameObject> gameObjects, CommandBuffer... buffers) {
+        int write = 0;
+        int read = 0;
+        for (CommandBuffer buffer : buffers) {
+            for (int d = 0; d < buffer.despawnCount; d++) {
+                int despawn = buffer.despawns[d];
+                while (read < despawn) {
+                    gameObjects.set(write++, gameObjects.get(read++));
+                }
+                read++;
+            }
+        }
+        if (read > write) {
+            int size = gameObjects.size();
+            while (read < size) {
+                gameObjects.set(write++, gameObjects.get(read++));
+            }
+            gameObjects.subList(write, size).clear();
+        }
+
+        for (CommandBuffer buffer : buffers) {
+            gameObjects.addAll(buffer.spawns);
+            buffer.clear();
+        }
+    }
+}
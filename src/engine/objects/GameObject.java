@@ -1,144 +1,439 @@
 package engine.objects;
 
+import engine.collision.CollisionFilter;
 import engine.graph.Mesh;
+import engine.graph.SceneNode;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
 import static engine.objects.GameObject.LifeState.ALIVE;
 import static engine.objects.GameObject.LifeState.DEAD;
 
+/**
+ * Thin view over a slot of a TransformStore, which holds position, rotation, scale and the kinematics
+ * of every game object of one world in packed arrays.
+ */
 public class GameObject {
 
     private Mesh mesh;
-    protected final Vector3f position;
-    protected float scale;
-    protected final Vector3f rotation;
-    protected float radius;
+    // slot of this object in the transform store, -1 once released
+    protected final TransformStore transforms;
+    private int slot;
     protected LifeState lifeState = ALIVE;
+    protected int collisionLayer = CollisionFilter.DEFAULT;
+    protected int collisionMask = CollisionFilter.ALL;
+    protected int team = CollisionFilter.NO_TEAM;
+    // handle in the registry holding this object
+    private int handle = Registry.NO_HANDLE;
+    // created on first use, see updateNode. The node is not scaled, the model node below it is
+    private SceneNode node;
+    private SceneNode model;
 
-    protected float speed;
     protected float maxSpeed;
-    protected float acceleration;
     protected float durability;
 
-    public GameObject() {
-        radius = 0f;
-        scale = 1;
-        position = new Vector3f(0, 0, 0);
-        rotation = new Vector3f(0, 0, 0);
+    // copies of the store handed out by the vector getters
+    private final Vector3f position;
+    private final Vector3f rotation;
+    private final Vector3f previousPosition;
+    private final Vector3f previousRotation;
+
+    /**
+     * Creates the object in a slot of the given store. Objects that interact have to share a store. Every
+     * world, and every thread owning objects of its own like the hud, has a store of its own.
+     */
+    public GameObject(TransformStore transforms) {
+        this.transforms = transforms;
+        slot = transforms.allocate();
+        position = new Vector3f();
+        rotation = new Vector3f();
+        previousPosition = new Vector3f();
+        previousRotation = new Vector3f();
     }
 
-    public GameObject(Mesh mesh, float radius) {
+    public GameObject(TransformStore transforms, Mesh mesh, float radius) {
+        this(transforms);
         this.mesh = mesh;
-        this.radius = radius;
-        position = new Vector3f(0, 0, 0);
-        scale = 1;
-        rotation = new Vector3f(0, 0, 0);
+        transforms.radius[slot()] = radius;
     }
 
-    public GameObject(Mesh mesh, float radius, float speed, float acceleration, float durability) {
-        this.mesh = mesh;
-        this.radius = radius;
-        position = new Vector3f(0, 0, 0);
-        scale = 1;
-        rotation = new Vector3f(0, 0, 0);
-        this.speed = speed;
-        this.acceleration = acceleration;
+    public GameObject(TransformStore transforms, Mesh mesh, float radius, float speed, float acceleration, float durability) {
+        this(transforms, mesh, radius);
+        transforms.speed[slot] = speed;
+        transforms.acceleration[slot] = acceleration;
         this.durability = durability;
         maxSpeed = calculateMaxSpeed();
     }
 
+    public TransformStore getTransformStore() {
+        return transforms;
+    }
+
+    // slot of this object, fails clearly instead of deep in the store once the object was released
+    protected final int slot() {
+        if(slot < 0) {
+            throw new IllegalStateException("Game object used after it was released");
+        }
+        return slot;
+    }
+
     public enum LifeState {
         ALIVE, DEAD
     }
 
     public void moveForward() {
+        int slot = slot();
+        float speed = transforms.speed[slot];
         if(speed != 0) {
-            position.x += (float) Math.sin(Math.toRadians(rotation.y -90)) * -1.0f * speed;
-            position.z += (float) Math.cos(Math.toRadians(rotation.y - 90)) * speed;
+            updateOrientation();
+            transforms.positionX[slot] += transforms.forwardX[slot] * speed;
+            transforms.positionY[slot] += transforms.forwardY[slot] * speed;
+            transforms.positionZ[slot] += transforms.forwardZ[slot] * speed;
         }
     }
 
     public void moveBackward() {
+        int slot = slot();
+        float speed = transforms.speed[slot];
         if(speed != 0) {
-            position.x += (float) Math.sin(Math.toRadians(rotation.y -90)) * speed;
-            position.z += (float) Math.cos(Math.toRadians(rotation.y - 90)) * -1.0f * speed;
+            updateOrientation();
+            transforms.positionX[slot] -= transforms.forwardX[slot] * speed;
+            transforms.positionY[slot] -= transforms.forwardY[slot] * speed;
+            transforms.positionZ[slot] -= transforms.forwardZ[slot] * speed;
         }
     }
 
     public void accelerate() {
+        int slot = slot();
+        float speed = transforms.speed[slot];
         if(speed <= calculateMaxSpeed()) {
-            speed += acceleration;
+            speed += transforms.acceleration[slot];
         }
         if(speed > calculateMaxSpeed()) {
             speed = calculateMaxSpeed();
         }
+        transforms.speed[slot] = speed;
     }
 
     public void decelerate() {
-        speed -= acceleration;
+        int slot = slot();
+        float speed = transforms.speed[slot] - transforms.acceleration[slot];
         if (speed < 0) {
             speed = 0;
         }
+        transforms.speed[slot] = speed;
     }
 
     public float calculateMaxSpeed() {
-        return acceleration * 100;
+        return transforms.acceleration[slot()] * 100;
     }
 
     public void setRadius(float radius) {
-        this.radius = radius;
+        transforms.radius[slot()] = radius;
+    }
+
+    public float getRadius() {
+        return transforms.radius[slot()];
+    }
+
+    public int getCollisionLayer() {
+        return collisionLayer;
+    }
+
+    public void setCollisionLayer(int collisionLayer) {
+        this.collisionLayer = collisionLayer;
+    }
+
+    public int getCollisionMask() {
+        return collisionMask;
+    }
+
+    public void setCollisionMask(int collisionMask) {
+        this.collisionMask = collisionMask;
+    }
+
+    public int getTeam() {
+        return team;
+    }
+
+    public void setTeam(int team) {
+        this.team = team;
+    }
+
+    public int getHandle() {
+        return handle;
+    }
+
+    void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    public boolean canCollide(GameObject other) {
+        return CollisionFilter.accepts(collisionLayer, collisionMask, other.collisionLayer, other.collisionMask);
     }
 
     public boolean collides(GameObject collidingObj) {
-        float minDistance = this.radius + collidingObj.radius;
-        float xDistance = Math.abs(this.position.x - collidingObj.position.x);
-        float zDistance = Math.abs(this.position.z - collidingObj.position.z);
-        float currentDistance = (float) Math.sqrt(Math.pow(xDistance, 2) + Math.pow(zDistance, 2));
-        return currentDistance < minDistance;
+        // compare squared distances, no need for a square root
+        float minDistance = getRadius() + collidingObj.getRadius();
+        float xDistance = getX() - collidingObj.getX();
+        float zDistance = getZ() - collidingObj.getZ();
+        return xDistance * xDistance + zDistance * zDistance < minDistance * minDistance;
     }
 
+    /**
+     * Swept version of collides. Returns the fraction of the step from the previous to the current position
+     * at which this object first touches the other one, or -1 if it doesn't. The other object is taken to rest
+     * at its current position.
+     */
+    public float timeOfImpact(GameObject collidingObj) {
+        int slot = slot();
+        float minDistance = getRadius() + collidingObj.getRadius();
+        float previousX = transforms.previousPositionX[slot];
+        float previousZ = transforms.previousPositionZ[slot];
+        float startX = previousX - collidingObj.getX();
+        float startZ = previousZ - collidingObj.getZ();
+        float c = startX * startX + startZ * startZ - minDistance * minDistance;
+        if(c < 0) {
+            return 0f;
+        }
+        float moveX = getX() - previousX;
+        float moveZ = getZ() - previousZ;
+        float a = moveX * moveX + moveZ * moveZ;
+        float b = startX * moveX + startZ * moveZ;
+        // not moving or moving away
+        if(a == 0 || b >= 0) {
+            return -1f;
+        }
+        float discriminant = b * b - a * c;
+        if(discriminant <= 0) {
+            return -1f;
+        }
+        float time = (-b - (float) Math.sqrt(discriminant)) / a;
+        return time <= 1f ? time : -1f;
+    }
+
+    public float getX() {
+        return transforms.positionX[slot()];
+    }
+
+    public float getY() {
+        return transforms.positionY[slot()];
+    }
+
+    public float getZ() {
+        return transforms.positionZ[slot()];
+    }
+
+    /**
+     * Copy of the position, not a view of it. Changes to the vector are not written back, use setPosition
+     * or moveTo. The same vector is filled again by the next call, copy it to keep the value.
+     */
     public Vector3f getPosition() {
-        return position;
+        int slot = slot();
+        return position.set(transforms.positionX[slot], transforms.positionY[slot], transforms.positionZ[slot]);
     }
 
     public void setPosition(float x, float y, float z) {
-        this.position.x = x;
-        this.position.y = y;
-        this.position.z = z;
+        int slot = slot();
+        moveTo(x, y, z);
+        // placing an object is a jump, so it must not be interpolated
+        transforms.previousPositionX[slot] = x;
+        transforms.previousPositionY[slot] = y;
+        transforms.previousPositionZ[slot] = z;
+    }
+
+    // unlike setPosition the move is interpolated
+    public void moveTo(float x, float y, float z) {
+        int slot = slot();
+        transforms.positionX[slot] = x;
+        transforms.positionY[slot] = y;
+        transforms.positionZ[slot] = z;
     }
 
     public float getScale() {
-        return scale;
+        return transforms.scale[slot()];
     }
 
     public void setScale(float scale) {
-        this.scale = scale;
+        transforms.scale[slot()] = scale;
     }
 
+    public float getRotationY() {
+        return transforms.rotationY[slot()];
+    }
+
+    /**
+     * Copy of the rotation, not a view of it. Changes to the vector are not written back, use setRotation
+     * or turn. The same vector is filled again by the next call, copy it to keep the value.
+     */
     public Vector3f getRotation() {
-        return rotation;
+        int slot = slot();
+        return rotation.set(transforms.rotationX[slot], transforms.rotationY[slot], transforms.rotationZ[slot]);
     }
 
     public void setRotation(float x, float y, float z) {
-        this.rotation.x = x;
-        this.rotation.y = y;
-        this.rotation.z = z;
+        int slot = slot();
+        transforms.rotationX[slot] = x;
+        transforms.rotationY[slot] = y;
+        transforms.rotationZ[slot] = z;
+        transforms.previousRotationX[slot] = x;
+        transforms.previousRotationY[slot] = y;
+        transforms.previousRotationZ[slot] = z;
+        transforms.orientationDirty[slot] = true;
+    }
+
+    // turns around the y axis, unlike setRotation the turn is interpolated
+    public void turn(float degrees) {
+        int slot = slot();
+        transforms.rotationY[slot] += degrees;
+        transforms.orientationDirty[slot] = true;
+    }
+
+    protected void updateOrientation() {
+        int slot = slot();
+        if(transforms.orientationDirty[slot]) {
+            transforms.updateOrientation(slot);
+        }
+    }
+
+    public Quaternionf getOrientation(Quaternionf dest) {
+        int slot = slot();
+        updateOrientation();
+        return dest.set(transforms.orientationX[slot], transforms.orientationY[slot], transforms.orientationZ[slot], transforms.orientationW[slot]);
+    }
+
+    /**
+     * Unit vector the object moves in with moveForward.
+     */
+    public Vector3f getForward(Vector3f dest) {
+        int slot = slot();
+        updateOrientation();
+        return dest.set(transforms.forwardX[slot], transforms.forwardY[slot], transforms.forwardZ[slot]);
+    }
+
+    public float getForwardX() {
+        updateOrientation();
+        return transforms.forwardX[slot()];
+    }
+
+    public float getForwardZ() {
+        updateOrientation();
+        return transforms.forwardZ[slot()];
+    }
+
+    // unit vector to the right of forward, in the plane of forward and the local z axis
+    public Vector3f getRight(Vector3f dest) {
+        int slot = slot();
+        updateOrientation();
+        return dest.set(transforms.rightX[slot], transforms.rightY[slot], transforms.rightZ[slot]);
+    }
+
+    /**
+     * Node of this object in the scene graph, synced with the transform store. It carries position and
+     * rotation but not the scale, so children attached to it follow the object without being scaled.
+     * Matrices are only rebuilt when the transform changed since the last sync. Only for the thread that
+     * owns the store, an excluded thread gets an IllegalStateException, see TransformStore.exclude.
+     */
+    public SceneNode updateNode() {
+        int slot = slot();
+        transforms.checkAccess();
+        if(node == null) {
+            node = new SceneNode();
+            model = new SceneNode();
+            node.addChild(model);
+        }
+        updateOrientation();
+        node.setTranslation(transforms.positionX[slot], transforms.positionY[slot], transforms.positionZ[slot]);
+        node.setRotation(transforms.orientationX[slot], transforms.orientationY[slot], transforms.orientationZ[slot], transforms.orientationW[slot]);
+        model.setScale(transforms.scale[slot]);
+        return node;
+    }
+
+    /**
+     * Model matrix of the current transform, scale included. Cached, don't change it. Same thread rules
+     * as updateNode.
+     */
+    public Matrix4f getWorldMatrix() {
+        updateNode();
+        return model.getWorldMatrix();
+    }
+
+    // true if position or rotation changed since the previous tick
+    public boolean isMoving() {
+        int slot = slot();
+        return transforms.positionX[slot] != transforms.previousPositionX[slot]
+                || transforms.positionY[slot] != transforms.previousPositionY[slot]
+                || transforms.positionZ[slot] != transforms.previousPositionZ[slot]
+                || transforms.rotationX[slot] != transforms.previousRotationX[slot]
+                || transforms.rotationY[slot] != transforms.previousRotationY[slot]
+                || transforms.rotationZ[slot] != transforms.previousRotationZ[slot];
+    }
+
+    /**
+     * Remember the current position and rotation as the state of the previous tick.
+     * Rendering interpolates between the previous and the current state.
+     * To do this for all objects at once use TransformStore.storePreviousTransforms.
+     */
+    public void storePreviousTransform() {
+        int slot = slot();
+        transforms.previousPositionX[slot] = transforms.positionX[slot];
+        transforms.previousPositionY[slot] = transforms.positionY[slot];
+        transforms.previousPositionZ[slot] = transforms.positionZ[slot];
+        transforms.previousRotationX[slot] = transforms.rotationX[slot];
+        transforms.previousRotationY[slot] = transforms.rotationY[slot];
+        transforms.previousRotationZ[slot] = transforms.rotationZ[slot];
+    }
+
+    // copies like getPosition and getRotation, the vectors are reused by the next call
+    public Vector3f getPreviousPosition() {
+        int slot = slot();
+        return previousPosition.set(transforms.previousPositionX[slot], transforms.previousPositionY[slot], transforms.previousPositionZ[slot]);
+    }
+
+    public Vector3f getPreviousRotation() {
+        int slot = slot();
+        return previousRotation.set(transforms.previousRotationX[slot], transforms.previousRotationY[slot], transforms.previousRotationZ[slot]);
+    }
+
+    // writes the interpolation state without going through the vectors, see TransformStore.copyTransform
+    public void copyTransform(float[] target, int offset) {
+        transforms.copyTransform(slot(), target, offset);
     }
 
     public void setSpeed(float speed) {
-        this.speed = speed;
+        transforms.speed[slot()] = speed;
     }
 
     public float getSpeed() {
-        return speed;
+        return transforms.speed[slot()];
     }
 
     public void setAcceleration(float acceleration) {
-        this.acceleration = acceleration;
+        transforms.acceleration[slot()] = acceleration;
     }
 
     public float getAcceleration() {
-        return acceleration;
+        return transforms.acceleration[slot()];
+    }
+
+    // back to the state of a new object, for recycling
+    protected void resetTransform() {
+        transforms.reset(slot());
+        lifeState = ALIVE;
+        maxSpeed = 0;
+        durability = 0;
+    }
+
+    /**
+     * Gives the slot back to the store. Only for objects nothing refers to anymore, the slot is reused
+     * by the next object created. Any later use of the transform throws an IllegalStateException.
+     */
+    public void release() {
+        if(slot >= 0) {
+            transforms.release(slot);
+            slot = -1;
+        }
     }
 
     public void setMesh(Mesh mesh) {
@@ -1,5 +1,6 @@
 package engine.objects;
 
+import engine.collision.CollisionFilter;
 import engine.graph.Mesh;
 import org.joml.Vector3f;
 
@@ -7,51 +8,209 @@ public class Missile extends GameObject {
 
     private float damage;
     private float range;
-    private Vector3f startPosition;
+    private final Vector3f startPosition;
     private Ship owner;
 
-    public Missile(Mesh mesh, float radius, float speed, float range, float damage, Ship owner) {
-        super(mesh, radius);
-        super.speed = speed;
+    // trajectory, fixed at the first move
+    private boolean launched;
+    private int age;
+    private int stopAge;
+    private int expiryAge;
+    private float launchX;
+    private float launchZ;
+    private float directionX;
+    private float directionZ;
+    private float launchSpeed;
+    private float deceleration;
+
+    public Missile(TransformStore transforms, Mesh mesh, float radius, float speed, float range, float damage, Ship owner) {
+        super(transforms, mesh, radius);
+        startPosition = new Vector3f();
+        init(speed, range, damage, owner);
+    }
+
+    public Missile(TransformStore transforms, Mesh mesh, float radius, float speed, float range, float acceleration, float durability, float damage) {
+        super(transforms, mesh, radius, speed, acceleration, durability);
         this.damage = damage;
         this.range = range;
-        startPosition = new Vector3f(position.x, position.y, position.z);
-        this.owner = owner;
+        startPosition = new Vector3f();
+        setupCollision();
+    }
+
+    // a new shot from a recycled missile, see MissilePool
+    void reuse(Mesh mesh, float radius, float speed, float range, float damage, Ship owner) {
+        resetTransform();
+        setMesh(mesh);
+        setRadius(radius);
+        init(speed, range, damage, owner);
     }
 
-    public Missile(Mesh mesh, float radius, float speed, float range, float acceleration, float durability, float damage) {
-        super(mesh, radius, speed, acceleration, durability);
+    // a pooled missile must not keep its ship alive
+    void clearOwner() {
+        owner = null;
+    }
+
+    private void init(float speed, float range, float damage, Ship owner) {
+        setSpeed(speed);
         this.damage = damage;
         this.range = range;
-        startPosition = new Vector3f(position.x, position.y, position.z);
+        startPosition.set(getX(), getY(), getZ());
+        this.owner = owner;
+        setupCollision();
+        // missiles fly for the team of the ship that fired them
+        team = owner != null ? owner.getTeam() : CollisionFilter.NO_TEAM;
     }
 
+    // missiles pass through each other
+    private void setupCollision() {
+        collisionLayer = CollisionFilter.MISSILES;
+        collisionMask = CollisionFilter.ALL & ~CollisionFilter.MISSILES;
+    }
+
+    /**
+     * Missiles fly straight and only slow down, so the position after any number of ticks has a closed form.
+     * The trajectory and the tick the range is used up are computed once at the first move, every tick
+     * then just evaluates it. Placing, turning or changing the speed starts a new trajectory.
+     */
     @Override
     public void moveForward() {
-        if(!isExhausted()) {
-            position.x += (float) Math.sin(Math.toRadians(rotation.y - 90)) * -1.0f * speed;
-            position.z += (float) Math.cos(Math.toRadians(rotation.y - 90)) * speed;
+        if(!launched) {
+            launch();
+        }
+        int slot = slot();
+        if(age < expiryAge) {
+            age++;
+            float distance = distance(age);
+            transforms.positionX[slot] = launchX + directionX * distance;
+            transforms.positionZ[slot] = launchZ + directionZ * distance;
         }
-        decelerate();
+        transforms.speed[slot] = Math.max(launchSpeed - age * deceleration, 0);
     }
 
     public boolean isExhausted() {
-        float xDistance = Math.abs(position.x - startPosition.x);
-        float zDistance = Math.abs(position.z - startPosition.z);
-        float currentDistance = (float) Math.sqrt(Math.pow(xDistance, 2) + Math.pow(zDistance, 2));
-        return currentDistance > range;
+        return launched && age >= expiryAge;
+    }
+
+    // tick of the trajectory the missile is spent at
+    public int getExpiryAge() {
+        if(!launched) {
+            launch();
+        }
+        return expiryAge;
+    }
+
+    private void launch() {
+        launched = true;
+        age = 0;
+        launchX = getX();
+        launchZ = getZ();
+        // the flight stays in the xz plane like the collision tests
+        directionX = getForwardX();
+        directionZ = getForwardZ();
+        float planar = (float) Math.sqrt(directionX * directionX + directionZ * directionZ);
+        if(planar > 0 && planar != 1f) {
+            directionX /= planar;
+            directionZ /= planar;
+        }
+        launchSpeed = getSpeed();
+        deceleration = Math.max(getAcceleration(), 0);
+        if(launchSpeed <= 0) {
+            stopAge = 0;
+        } else if(deceleration > 0) {
+            stopAge = (int) Math.min(Math.ceil(launchSpeed / deceleration), Integer.MAX_VALUE - 1);
+        } else {
+            stopAge = Integer.MAX_VALUE - 1;
+        }
+        expiryAge = computeExpiryAge();
+    }
+
+    // distance flown after the given ticks, each tick moves with the speed before slowing down
+    private float distance(int ticks) {
+        double moving = Math.min(ticks, stopAge);
+        return (float) (moving * launchSpeed - deceleration * moving * (moving - 1) / 2);
+    }
+
+    // first tick the missile is farther than range from its origin, or the tick it stops if it never gets there
+    private int computeExpiryAge() {
+        float offsetX = launchX - startPosition.x;
+        float offsetZ = launchZ - startPosition.z;
+        // distance along the flight at which the range is left
+        float along = offsetX * directionX + offsetZ * directionZ;
+        float discriminant = along * along - (offsetX * offsetX + offsetZ * offsetZ) + range * range;
+        if(stopAge == 0) {
+            return 0;
+        }
+        // the flight line misses the range circle or the first tick still ends before entering it
+        if(discriminant < 0 || distance(1) < -along - (float) Math.sqrt(discriminant)) {
+            return 1;
+        }
+        float limit = Math.max(-along + (float) Math.sqrt(discriminant), 0);
+        if(distance(stopAge) <= limit) {
+            return stopAge;
+        }
+        double estimate;
+        if(deceleration > 0) {
+            double b = launchSpeed + deceleration / 2;
+            estimate = (b - Math.sqrt(Math.max(b * b - 2 * deceleration * limit, 0))) / deceleration;
+        } else {
+            estimate = limit / launchSpeed;
+        }
+        // the estimate is off by rounding at most, settle on the exact tick
+        int ticks = (int) Math.max(Math.min(Math.floor(estimate) + 1, stopAge), 1);
+        while(ticks < stopAge && distance(ticks) <= limit) {
+            ticks++;
+        }
+        while(ticks > 1 && distance(ticks - 1) > limit) {
+            ticks--;
+        }
+        return ticks;
+    }
+
+    @Override
+    public void setPosition(float x, float y, float z) {
+        super.setPosition(x, y, z);
+        launched = false;
+    }
+
+    @Override
+    public void moveTo(float x, float y, float z) {
+        super.moveTo(x, y, z);
+        launched = false;
+    }
+
+    @Override
+    public void setRotation(float x, float y, float z) {
+        super.setRotation(x, y, z);
+        launched = false;
+    }
+
+    @Override
+    public void setSpeed(float speed) {
+        super.setSpeed(speed);
+        launched = false;
+    }
+
+    @Override
+    public void setAcceleration(float acceleration) {
+        super.setAcceleration(acceleration);
+        launched = false;
     }
 
     public void setOrigin(float x, float y, float z) {
         startPosition.x = x;
         startPosition.y = y;
         startPosition.z = z;
+        launched = false;
     }
 
     public float getDamage() {
         return damage;
     }
 
+    public Ship getOwner() {
+        return owner;
+    }
+
     public boolean isOwner(Ship owner) {
         return this.owner == owner;
     }
@@ -0,0 +1,67 @@
+package engine.objects;
+
+import engine.graph.Mesh;
+
+/**
+ * Spent missiles of one world kept for reuse, volleys would otherwise allocate a missile per shot.
+ * Pooled missiles keep their slots in the store of the pool, so reusing one allocates nothing.
+ */
+public class MissilePool {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final TransformStore transforms;
+    private final Missile[] missiles;
+    private int pooled;
+
+    public MissilePool(TransformStore transforms) {
+        this(transforms, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param transforms store new missiles are created in, the store of the world they fly in
+     * @param capacity missiles kept at most, recycling more releases them
+     */
+    public MissilePool(TransformStore transforms, int capacity) {
+        this.transforms = transforms;
+        missiles = new Missile[capacity];
+    }
+
+    /**
+     * Same as the Missile constructor, but reuses a recycled missile if there is one.
+     */
+    public Missile obtain(Mesh mesh, float radius, float speed, float range, float damage, Ship owner) {
+        Missile missile;
+        synchronized(this) {
+            if(pooled == 0) {
+                return new Missile(transforms, mesh, radius, speed, range, damage, owner);
+            }
+            missile = missiles[--pooled];
+            missiles[pooled] = null;
+        }
+        missile.reuse(mesh, radius, speed, range, damage, owner);
+        return missile;
+    }
+
+    /**
+     * Hands a spent missile over to obtain. Nothing may refer to it anymore. A full pool releases it.
+     */
+    public void recycle(Missile missile) {
+        missile.clearOwner();
+        synchronized(this) {
+            if(pooled < missiles.length) {
+                missiles[pooled++] = missile;
+                return;
+            }
+        }
+        missile.release();
+    }
+
+    public TransformStore getTransformStore() {
+        return transforms;
+    }
+
+    public int size() {
+        return pooled;
+    }
+}
@@ -1,14 +1,23 @@
 package engine.objects;
 
+import engine.collision.CollisionFilter;
 import engine.graph.Mesh;
 
 public class Obstacle extends GameObject {
 
-    public Obstacle(Mesh mesh, float radius) {
-        super(mesh, radius);
+    public Obstacle(TransformStore transforms, Mesh mesh, float radius) {
+        super(transforms, mesh, radius);
+        setupCollision();
     }
 
-    public Obstacle(Mesh mesh, float radius, float speed, float acceleration, float durability) {
-        super(mesh, radius, speed, acceleration, durability);
+    public Obstacle(TransformStore transforms, Mesh mesh, float radius, float speed, float acceleration, float durability) {
+        super(transforms, mesh, radius, speed, acceleration, durability);
+        setupCollision();
+    }
+
+    // obstacles don't collide with each other
+    private void setupCollision() {
+        collisionLayer = CollisionFilter.OBSTACLES;
+        collisionMask = CollisionFilter.ALL & ~CollisionFilter.OBSTACLES;
     }
 }
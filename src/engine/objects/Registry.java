@@ -0,0 +1,155 @@
+package engine.objects;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dense list of game objects addressed by generational handles. Removing moves the last object into
+ * the free place, so removal is O(1) and iteration stays over a packed array, but the order changes.
+ * A handle resolves to its object until the object is removed, afterwards it resolves to null even when
+ * its slot was reused. Generations wrap after 2048 reuses of a slot.
+ * An object can only be in one registry at a time, the registry stores the handle in the object.
+ */
+public class Registry<T extends GameObject> {
+
+    public static final int NO_HANDLE = -1;
+
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7FF;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private GameObject[] objects;
+    // slot of every dense index
+    private int[] slots;
+    // dense index of every slot, -1 for free slots
+    private int[] indices;
+    private int[] generations;
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+    private int size;
+
+    public Registry() {
+        objects = new GameObject[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY];
+        indices = new int[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        freeSlots = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Appends the object and returns its handle.
+     */
+    public int add(T object) {
+        if(contains(object)) {
+            return object.getHandle();
+        }
+        if(size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        int slot;
+        if(freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if(slotCount == INDEX_MASK + 1) {
+                throw new IllegalStateException("registry is full");
+            }
+            if(slotCount == indices.length) {
+                indices = Arrays.copyOf(indices, slotCount * 2);
+                generations = Arrays.copyOf(generations, slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        objects[size] = object;
+        slots[size] = slot;
+        indices[slot] = size;
+        size++;
+        int handle = generations[slot] << INDEX_BITS | slot;
+        object.setHandle(handle);
+        return handle;
+    }
+
+    public void addAll(List<? extends T> objects) {
+        for(int i = 0; i < objects.size(); i++) {
+            add(objects.get(i));
+        }
+    }
+
+    public boolean remove(T object) {
+        int handle = object.getHandle();
+        if(resolve(handle) != object) {
+            return false;
+        }
+        removeSlot(handle & INDEX_MASK);
+        return true;
+    }
+
+    public boolean remove(int handle) {
+        if(resolve(handle) == null) {
+            return false;
+        }
+        removeSlot(handle & INDEX_MASK);
+        return true;
+    }
+
+    /**
+     * Object of the handle, or null if it was removed.
+     */
+    @SuppressWarnings("unchecked")
+    public T resolve(int handle) {
+        if(handle < 0) {
+            return null;
+        }
+        int slot = handle & INDEX_MASK;
+        if(slot >= slotCount || generations[slot] != handle >>> INDEX_BITS || indices[slot] < 0) {
+            return null;
+        }
+        return (T) objects[indices[slot]];
+    }
+
+    public boolean contains(T object) {
+        return resolve(object.getHandle()) == object;
+    }
+
+    /**
+     * Object at a dense index, for iteration.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return (T) objects[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        while(size > 0) {
+            removeSlot(slots[size - 1]);
+        }
+    }
+
+    private void removeSlot(int slot) {
+        int index = indices[slot];
+        int last = size - 1;
+        objects[index].setHandle(NO_HANDLE);
+        if(index != last) {
+            objects[index] = objects[last];
+            slots[index] = slots[last];
+            indices[slots[index]] = index;
+        }
+        objects[last] = null;
+        size--;
+        indices[slot] = -1;
+        generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+        if(freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -1,5 +1,7 @@
 package engine.objects;
 
+import engine.collision.CollisionFilter;
+import engine.collision.OrientedBox;
 import engine.graph.Mesh;
 import engine.objects.modules.*;
 import engine.objects.modules.Module;
@@ -22,10 +24,12 @@ public class Ship extends GameObject {
     private float length = 4f;
     private float width = 2f;
     private static final float MANEUVERABILITY = 0.75f;
+    private final Vector3f forward = new Vector3f();
 
-    public Ship(Mesh mesh, float speed, float acceleration, float durability) {
-        super(mesh, 4f, speed, acceleration, durability);
+    public Ship(TransformStore transforms, Mesh mesh, float speed, float acceleration, float durability) {
+        super(transforms, mesh, 4f, speed, acceleration, durability);
         defaultAcceleration = acceleration;
+        collisionLayer = CollisionFilter.SHIPS;
     }
 
     public void init(Front frontWeapon, Broadsides broadsidesWeapon, Shield shield, Thruster thruster) {
@@ -36,26 +40,27 @@ public class Ship extends GameObject {
     }
 
     public void steer(float mod) {
-        super.rotation.y += MANEUVERABILITY * mod / (super.speed + 1);
+        turn(MANEUVERABILITY * mod / (getSpeed() + 1));
     }
 
     public Missile shootFrontal() {
-        return ((Front) frontWeapon).load(getPosition(), getRotation());
+        return ((Front) frontWeapon).load();
     }
 
-    public List<Missile> shootLeftSide() {
-        return ((Broadsides) broadsidesWeapon).load(getPosition(), getRotation(), length, width, Broadsides.Side.LEFT);
+    // adds the missiles of the volley to the list
+    public void shootLeftSide(List<Missile> volley) {
+        ((Broadsides) broadsidesWeapon).load(getPosition(), getRotation(), getForward(forward), length, width, Broadsides.Side.LEFT, volley);
     }
 
-    public List<Missile> shootRightSide() {
-        return ((Broadsides) broadsidesWeapon).load(getPosition(), getRotation(), length, width, Broadsides.Side.RIGHT);
+    public void shootRightSide(List<Missile> volley) {
+        ((Broadsides) broadsidesWeapon).load(getPosition(), getRotation(), getForward(forward), length, width, Broadsides.Side.RIGHT, volley);
     }
 
     public void boost() {
         weaponsActive = false;
         boostActive = true;
-        acceleration = thruster.getMagnitude();
-        if(speed < calculateMaxSpeed()) {
+        setAcceleration(thruster.getMagnitude());
+        if(getSpeed() < calculateMaxSpeed()) {
             accelerate();
         }
         thruster.drainFuel();
@@ -67,16 +72,16 @@ public class Ship extends GameObject {
         }
         weaponsActive = true;
         boostActive = false;
-        acceleration = defaultAcceleration;
-        if(speed > calculateMaxSpeed()) {
+        setAcceleration(defaultAcceleration);
+        if(getSpeed() > calculateMaxSpeed()) {
             decelerate();
         }
-        thruster.rechargeFuel();
     }
 
     public void useShield() {
         weaponsActive = false;
         shieldActive = true;
+        shield.suspendRecharge();
     }
 
     public void stopShield() {
@@ -85,7 +90,6 @@ public class Ship extends GameObject {
         }
         weaponsActive = true;
         shieldActive = false;
-        shield.rechargeShield();
     }
 
     public boolean isFrontReady() {
@@ -141,16 +145,44 @@ public class Ship extends GameObject {
         }
     }
 
+    /**
+     * The bounding sphere rejects most pairs cheaply, the oriented box of the hull decides the rest.
+     */
+    @Override
+    public boolean collides(GameObject collidingObj) {
+        if(!super.collides(collidingObj)) {
+            return false;
+        }
+        // the forward vector is the heading, cached until the ship turns
+        float headingCos = getForwardX();
+        float headingSin = getForwardZ();
+        if(collidingObj instanceof Ship) {
+            Ship other = (Ship) collidingObj;
+            return OrientedBox.overlapsBox(getX(), getZ(), headingCos, headingSin, length / 2f, width / 2f,
+                    other.getX(), other.getZ(), other.getForwardX(), other.getForwardZ(), other.length / 2f, other.width / 2f);
+        }
+        return OrientedBox.overlapsCircle(getX(), getZ(), headingCos, headingSin, length / 2f, width / 2f,
+                collidingObj.getX(), collidingObj.getZ(), collidingObj.getRadius());
+    }
+
+    public float getLength() {
+        return length;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
     public float getAngle() {
-        return this.rotation.y % 360;
+        return getRotationY() % 360;
     }
 
     public float evade(GameObject collidingObj) {
-        float xDistance = Math.abs(this.position.x - collidingObj.position.x);
-        float zDistance = Math.abs(this.position.z - collidingObj.position.z);
+        float xDistance = Math.abs(getX() - collidingObj.getX());
+        float zDistance = Math.abs(getZ() - collidingObj.getZ());
         float lengthDirectionalVector = (float) Math.sqrt(Math.pow(xDistance, 2) + Math.pow(zDistance, 2));
         Vector3f directionalVector = new Vector3f(xDistance, 0, zDistance);
-        Vector3f rotationalVector = new Vector3f((float) (Math.cos(this.rotation.y % 360) / this.radius), 0, ((float) Math.sin(this.rotation.y % 360) / this.radius));
+        Vector3f rotationalVector = new Vector3f((float) (Math.cos(getRotationY() % 360) / getRadius()), 0, ((float) Math.sin(getRotationY() % 360) / getRadius()));
         float lengthRotationalVector = (float) Math.sqrt(Math.pow(rotationalVector.x, 2) + Math.pow(rotationalVector.z, 2));
         float angle = (directionalVector.x * rotationalVector.x + directionalVector.y * rotationalVector.y + directionalVector.z * rotationalVector.z)
                 / (lengthDirectionalVector * lengthRotationalVector);
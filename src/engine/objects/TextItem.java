@@ -19,8 +19,12 @@ public class TextItem extends GameObject {
 
     private final FontTexture fontTexture;
 
-    public TextItem(String text, FontTexture fontTexture) throws Exception {
-        super();
+    /**
+     * @param transforms store of the hud. Hud items are created and moved on the render thread, so they
+     * must not use the store of the simulation.
+     */
+    public TextItem(TransformStore transforms, String text, FontTexture fontTexture) throws Exception {
+        super(transforms);
         this.text = text;
         this.fontTexture = fontTexture;
         setMesh(buildMesh());
@@ -0,0 +1,249 @@
+package engine.objects;
+
+import java.util.Arrays;
+
+/**
+ * Transforms and kinematics of game objects in packed float arrays, one slot per object. A game object
+ * only keeps its slot, so systems touching many objects sweep a few arrays linearly instead of visiting
+ * one heap object and two vectors per entity.
+ * Allocating and releasing slots may grow the arrays, which must not happen while another thread uses
+ * the store. Reads and writes of different slots may run in parallel.
+ */
+public class TransformStore {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    float[] positionX;
+    float[] positionY;
+    float[] positionZ;
+    float[] rotationX;
+    float[] rotationY;
+    float[] rotationZ;
+    float[] previousPositionX;
+    float[] previousPositionY;
+    float[] previousPositionZ;
+    float[] previousRotationX;
+    float[] previousRotationY;
+    float[] previousRotationZ;
+    float[] scale;
+    float[] radius;
+    float[] speed;
+    float[] acceleration;
+    // orientation derived from the rotation, only recomputed after the rotation changed
+    boolean[] orientationDirty;
+    float[] orientationX;
+    float[] orientationY;
+    float[] orientationZ;
+    float[] orientationW;
+    float[] forwardX;
+    float[] forwardY;
+    float[] forwardZ;
+    float[] rightX;
+    float[] rightY;
+    float[] rightZ;
+
+    // released slots, reused before the arrays grow
+    private int[] free;
+    private int freeCount;
+    private int used;
+    // thread that must not sync scene nodes from this store, see exclude
+    private volatile Thread excluded;
+
+    public TransformStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public TransformStore(int capacity) {
+        positionX = new float[capacity];
+        positionY = new float[capacity];
+        positionZ = new float[capacity];
+        rotationX = new float[capacity];
+        rotationY = new float[capacity];
+        rotationZ = new float[capacity];
+        previousPositionX = new float[capacity];
+        previousPositionY = new float[capacity];
+        previousPositionZ = new float[capacity];
+        previousRotationX = new float[capacity];
+        previousRotationY = new float[capacity];
+        previousRotationZ = new float[capacity];
+        scale = new float[capacity];
+        radius = new float[capacity];
+        speed = new float[capacity];
+        acceleration = new float[capacity];
+        orientationDirty = new boolean[capacity];
+        orientationX = new float[capacity];
+        orientationY = new float[capacity];
+        orientationZ = new float[capacity];
+        orientationW = new float[capacity];
+        forwardX = new float[capacity];
+        forwardY = new float[capacity];
+        forwardZ = new float[capacity];
+        rightX = new float[capacity];
+        rightY = new float[capacity];
+        rightZ = new float[capacity];
+        free = new int[16];
+    }
+
+    /**
+     * Returns a slot at the origin with scale 1 and everything else 0.
+     */
+    public synchronized int allocate() {
+        int slot;
+        if(freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if(used == positionX.length) {
+                grow(used * 2);
+            }
+            slot = used++;
+        }
+        reset(slot);
+        return slot;
+    }
+
+    public synchronized void release(int slot) {
+        if(freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = slot;
+    }
+
+    /**
+     * Make every scene node sync from the given thread fail with an IllegalStateException. Meant for the
+     * render thread once the simulation owns the store, it has to read the objects through snapshots.
+     */
+    public void exclude(Thread thread) {
+        excluded = thread;
+    }
+
+    void checkAccess() {
+        if(Thread.currentThread() == excluded) {
+            throw new IllegalStateException("Transforms can't be read on " + excluded.getName() + ", use the render snapshot");
+        }
+    }
+
+    // slots below this were handed out at some point, released ones included
+    public int getUsed() {
+        return used;
+    }
+
+    public int getLive() {
+        return used - freeCount;
+    }
+
+    /**
+     * Remember the current position and rotation of every slot as the state of the previous tick,
+     * one copy per array. Released slots are copied too, which is cheaper than skipping them.
+     */
+    public void storePreviousTransforms() {
+        System.arraycopy(positionX, 0, previousPositionX, 0, used);
+        System.arraycopy(positionY, 0, previousPositionY, 0, used);
+        System.arraycopy(positionZ, 0, previousPositionZ, 0, used);
+        System.arraycopy(rotationX, 0, previousRotationX, 0, used);
+        System.arraycopy(rotationY, 0, previousRotationY, 0, used);
+        System.arraycopy(rotationZ, 0, previousRotationZ, 0, used);
+    }
+
+    /**
+     * Writes previous position, previous rotation, position, rotation and scale of a slot to target,
+     * the layout RenderSnapshot interpolates.
+     */
+    public void copyTransform(int slot, float[] target, int offset) {
+        target[offset] = previousPositionX[slot];
+        target[offset + 1] = previousPositionY[slot];
+        target[offset + 2] = previousPositionZ[slot];
+        target[offset + 3] = previousRotationX[slot];
+        target[offset + 4] = previousRotationY[slot];
+        target[offset + 5] = previousRotationZ[slot];
+        target[offset + 6] = positionX[slot];
+        target[offset + 7] = positionY[slot];
+        target[offset + 8] = positionZ[slot];
+        target[offset + 9] = rotationX[slot];
+        target[offset + 10] = rotationY[slot];
+        target[offset + 11] = rotationZ[slot];
+        target[offset + 12] = scale[slot];
+    }
+
+    void reset(int slot) {
+        positionX[slot] = 0;
+        positionY[slot] = 0;
+        positionZ[slot] = 0;
+        rotationX[slot] = 0;
+        rotationY[slot] = 0;
+        rotationZ[slot] = 0;
+        previousPositionX[slot] = 0;
+        previousPositionY[slot] = 0;
+        previousPositionZ[slot] = 0;
+        previousRotationX[slot] = 0;
+        previousRotationY[slot] = 0;
+        previousRotationZ[slot] = 0;
+        scale[slot] = 1;
+        radius[slot] = 0;
+        speed[slot] = 0;
+        acceleration[slot] = 0;
+        orientationDirty[slot] = true;
+    }
+
+    /**
+     * Recomputes the orientation quaternion and the forward and right vectors of a slot from its rotation.
+     * The quaternion rotates like the model matrix, x then y then z by the negated angles. Forward is
+     * the direction moveForward moves in, right the one a broadside to the right fires in.
+     */
+    void updateOrientation(int slot) {
+        double halfX = Math.toRadians(-rotationX[slot]) / 2;
+        double halfY = Math.toRadians(-rotationY[slot]) / 2;
+        double halfZ = Math.toRadians(-rotationZ[slot]) / 2;
+        double sx = Math.sin(halfX);
+        double cx = Math.cos(halfX);
+        double sy = Math.sin(halfY);
+        double cy = Math.cos(halfY);
+        double sz = Math.sin(halfZ);
+        double cz = Math.cos(halfZ);
+        double x = sx * cy * cz + cx * sy * sz;
+        double y = cx * sy * cz - sx * cy * sz;
+        double z = cx * cy * sz + sx * sy * cz;
+        double w = cx * cy * cz - sx * sy * sz;
+        orientationX[slot] = (float) x;
+        orientationY[slot] = (float) y;
+        orientationZ[slot] = (float) z;
+        orientationW[slot] = (float) w;
+        // local x axis and local z axis rotated by the quaternion
+        forwardX[slot] = (float) (1 - 2 * (y * y + z * z));
+        forwardY[slot] = (float) (2 * (x * y + w * z));
+        forwardZ[slot] = (float) (2 * (x * z - w * y));
+        rightX[slot] = (float) (2 * (x * z + w * y));
+        rightY[slot] = (float) (2 * (y * z - w * x));
+        rightZ[slot] = (float) (1 - 2 * (x * x + y * y));
+        orientationDirty[slot] = false;
+    }
+
+    private void grow(int capacity) {
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        positionZ = Arrays.copyOf(positionZ, capacity);
+        rotationX = Arrays.copyOf(rotationX, capacity);
+        rotationY = Arrays.copyOf(rotationY, capacity);
+        rotationZ = Arrays.copyOf(rotationZ, capacity);
+        previousPositionX = Arrays.copyOf(previousPositionX, capacity);
+        previousPositionY = Arrays.copyOf(previousPositionY, capacity);
+        previousPositionZ = Arrays.copyOf(previousPositionZ, capacity);
+        previousRotationX = Arrays.copyOf(previousRotationX, capacity);
+        previousRotationY = Arrays.copyOf(previousRotationY, capacity);
+        previousRotationZ = Arrays.copyOf(previousRotationZ, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        acceleration = Arrays.copyOf(acceleration, capacity);
+        orientationDirty = Arrays.copyOf(orientationDirty, capacity);
+        orientationX = Arrays.copyOf(orientationX, capacity);
+        orientationY = Arrays.copyOf(orientationY, capacity);
+        orientationZ = Arrays.copyOf(orientationZ, capacity);
+        orientationW = Arrays.copyOf(orientationW, capacity);
+        forwardX = Arrays.copyOf(forwardX, capacity);
+        forwardY = Arrays.copyOf(forwardY, capacity);
+        forwardZ = Arrays.copyOf(forwardZ, capacity);
+        rightX = Arrays.copyOf(rightX, capacity);
+        rightY = Arrays.copyOf(rightY, capacity);
+        rightZ = Arrays.copyOf(rightZ, capacity);
+    }
+}
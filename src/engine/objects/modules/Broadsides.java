@@ -1,52 +1,62 @@
 package engine.objects.modules;
 
+import engine.SimulationClock;
 import engine.graph.Mesh;
 import engine.objects.Missile;
+import engine.objects.MissilePool;
 import engine.objects.Ship;
 import org.joml.Vector3f;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class Broadsides extends Weapon {
 
     private int amount;
     private float spread;
-    private long leftLastTime;
-    private long rightLastTime;
+    private final Cooldown leftCooldown;
+    private final Cooldown rightCooldown;
 
     public enum Side {
         LEFT, RIGHT
     }
 
-    public Broadsides(ModPosition position, long interval, int amount, float spread, Mesh mesh, Ship owner, float missileRadius, float missileSpeed, float missileRange, float missileDamage, float missileAcceleration) {
-        super(position, interval, mesh, missileRadius, missileSpeed, missileRange, missileDamage, missileAcceleration, owner);
+    public Broadsides(ModPosition position, SimulationClock clock, long interval, int amount, float spread, Mesh mesh, MissilePool missilePool, Ship owner, float missileRadius, float missileSpeed, float missileRange, float missileDamage, float missileAcceleration) {
+        super(position, clock, interval, mesh, missileRadius, missileSpeed, missileRange, missileDamage, missileAcceleration, missilePool, owner);
         this.amount = amount;
         this.spread = spread;
-        leftLastTime = System.currentTimeMillis();
-        rightLastTime = System.currentTimeMillis();
+        leftCooldown = new Cooldown(clock, this.interval);
+        rightCooldown = new Cooldown(clock, this.interval);
+        leftCooldown.start();
+        rightCooldown.start();
     }
 
-    public List<Missile> load(Vector3f position, Vector3f rotation, float length, float width, Side side) {
-        List<Missile> missiles = new ArrayList<>();
+    /**
+     * Fires a volley into a list of the caller, so firing allocates no list and nothing is shared between
+     * volleys.
+     * @param forward heading of the ship as a unit vector, see GameObject.getForward
+     * @param missiles list the missiles of the volley are added to, it is not cleared
+     */
+    public void load(Vector3f position, Vector3f rotation, Vector3f forward, float length, float width, Side side, List<Missile> missiles) {
         switch (side) {
             case LEFT:
-                leftLastTime = System.currentTimeMillis();
+                leftCooldown.start();
             case RIGHT:
-                rightLastTime = System.currentTimeMillis();
+                rightCooldown.start();
         }
 
         float padding = length * 0.1f;
         float row = length - (2 * padding);
         float distanceBetween = row / amount;
         float distance;
-        float offsetX = (float) Math.cos(Math.toRadians(rotation.y)) * (row / 2);
-        float offsetZ = (float) Math.sin(Math.toRadians(rotation.y)) * (row / 2);
-        Vector3f firstPosition = new Vector3f(position.x + offsetX, position.y, position.z + offsetZ);
+        float offsetX = forward.x * (row / 2);
+        float offsetZ = forward.z * (row / 2);
+        float firstX = position.x + offsetX;
+        float firstY = position.y;
+        float firstZ = position.z + offsetZ;
 
         for(int i = 0; i < amount; i++) {
             for(int j = -1; j <= 1; j++) {
-                Missile missile = new Missile(super.mesh, missileRadius, missileSpeed, missileRange, missileDamage, owner);
+                Missile missile = missilePool.obtain(super.mesh, missileRadius, missileSpeed, missileRange, missileDamage, owner);
                 missile.setAcceleration(missileAcceleration);
                 float sideRotation = 0;
                 float sideOffset = 0;
@@ -61,31 +71,30 @@ public class Broadsides extends Weapon {
                         break;
                 }
                 distance = (-1) * i * distanceBetween;
-                offsetX = (float) Math.cos(Math.toRadians(rotation.y)) * distance;
-                offsetZ = (float) Math.sin(Math.toRadians(rotation.y)) * distance;
+                offsetX = forward.x * distance;
+                offsetZ = forward.z * distance;
 
                 // TODO add offset to width of model (in non parallel cases, this is difficult)
-                float offsetXSide = (float) Math.cos(Math.toRadians(rotation.y)) * sideOffset;
-                float offsetZSide = (float) Math.sin(Math.toRadians(rotation.y)) * sideOffset;
+                float offsetXSide = forward.x * sideOffset;
+                float offsetZSide = forward.z * sideOffset;
                 offsetXSide = 0;
                 offsetZSide = 0;
 
-                missile.setPosition(firstPosition.x + offsetX + offsetXSide, firstPosition.y, firstPosition.z + offsetZ + offsetZSide);
+                missile.setPosition(firstX + offsetX + offsetXSide, firstY, firstZ + offsetZ + offsetZSide);
                 missile.setOrigin(position.x, position.y, position.z);
                 missile.setRotation(rotation.x, rotation.y + sideRotation + (spread * j), rotation.z);
                 missile.setScale(0.1f);
                 missiles.add(missile);
             }
         }
-        return missiles;
     }
 
     public boolean isReady(Side side) {
         switch(side) {
             case LEFT:
-                return System.currentTimeMillis() - leftLastTime >= interval;
+                return leftCooldown.isReady();
             case RIGHT:
-                return System.currentTimeMillis() - rightLastTime >= interval;
+                return rightCooldown.isReady();
                 default:
                     return true;
         }
@@ -0,0 +1,36 @@
+package engine.objects.modules;
+
+import engine.SimulationClock;
+import engine.TimerWheel;
+
+/**
+ * Becomes ready once a fixed duration passed after it was started. Readiness is set by a task
+ * on the simulation clock, so checking it is a plain field read.
+ */
+class Cooldown {
+
+    private final SimulationClock clock;
+    private final long duration;
+    private final Runnable expire;
+    private TimerWheel.Timeout timeout;
+    private boolean ready;
+
+    /**
+     * @param duration duration in nanoseconds
+     */
+    Cooldown(SimulationClock clock, long duration) {
+        this.clock = clock;
+        this.duration = duration;
+        expire = () -> ready = true;
+    }
+
+    void start() {
+        clock.cancel(timeout);
+        ready = false;
+        timeout = clock.schedule(duration, expire);
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+}
@@ -1,28 +1,44 @@
 package engine.objects.modules;
 
+import engine.SimulationClock;
 import engine.graph.Mesh;
+import engine.graph.SceneNode;
 import engine.objects.Missile;
+import engine.objects.MissilePool;
 import engine.objects.Ship;
 import org.joml.Vector3f;
 
 public class Front extends Weapon {
 
     private float length;
+    private final Cooldown cooldown;
+    // muzzle in front of the bow, a child of the owner's unscaled node
+    private final SceneNode hardpoint;
+    private final Vector3f muzzle = new Vector3f();
 
-    public Front(ModPosition position, long interval, float length, Mesh mesh, Ship owner, float missileRadius, float missileSpeed, float missileRange, float missileDamage, float missileAcceleration) {
-        super(position, interval, mesh, missileRadius, missileSpeed, missileRange, missileDamage, missileAcceleration, owner);
+    public Front(ModPosition position, SimulationClock clock, long interval, float length, Mesh mesh, MissilePool missilePool, Ship owner, float missileRadius, float missileSpeed, float missileRange, float missileDamage, float missileAcceleration) {
+        super(position, clock, interval, mesh, missileRadius, missileSpeed, missileRange, missileDamage, missileAcceleration, missilePool, owner);
         this.length = length;
+        cooldown = new Cooldown(clock, this.interval);
+        cooldown.start();
+        hardpoint = new SceneNode((length / 2) + 0.3f, 0, 0);
+        if(owner != null) {
+            owner.updateNode().addChild(hardpoint);
+        }
     }
 
-    public Missile load(Vector3f position, Vector3f rotation) {
-        Missile missile = new Missile(super.mesh, missileRadius, missileSpeed, missileRange, missileDamage, owner);
+    // fires from the hardpoint along the heading of the owner
+    public Missile load() {
+        Missile missile = missilePool.obtain(super.mesh, missileRadius, missileSpeed, missileRange, missileDamage, owner);
         missile.setAcceleration(missileAcceleration);
-        lastTime = System.currentTimeMillis();
+        cooldown.start();
 
-        float offsetX = (float) Math.cos(Math.toRadians(rotation.y)) * ((length / 2) + 0.3f);
-        float offsetZ = (float) Math.sin(Math.toRadians(rotation.y)) * ((length / 2) + 0.3f);
+        owner.updateNode();
+        hardpoint.getWorldPosition(muzzle);
+        Vector3f position = owner.getPosition();
+        Vector3f rotation = owner.getRotation();
 
-        missile.setPosition(position.x + offsetX, position.y, position.z + offsetZ);
+        missile.setPosition(muzzle.x, muzzle.y, muzzle.z);
         missile.setOrigin(position.x, position.y, position.z);
         missile.setRotation(rotation.x, rotation.y, rotation.z);
         missile.setScale(0.1f);
@@ -31,6 +47,6 @@ public class Front extends Weapon {
     }
 
     public boolean isReady() {
-        return System.currentTimeMillis() - lastTime >= interval;
+        return cooldown.isReady();
     }
 }
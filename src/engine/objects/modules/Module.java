@@ -1,11 +1,15 @@
 package engine.objects.modules;
 
+import engine.SimulationClock;
+
 public abstract class Module {
 
     protected ModPosition position;
+    protected final SimulationClock clock;
 
-    public Module(ModPosition position) {
+    public Module(ModPosition position, SimulationClock clock) {
         this.position = position;
+        this.clock = clock;
     }
 
     public enum ModPosition {
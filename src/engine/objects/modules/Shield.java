@@ -1,24 +1,39 @@
 package engine.objects.modules;
 
+import engine.SimulationClock;
+import engine.TimerWheel;
+
+import java.util.concurrent.TimeUnit;
+
 public class Shield extends Module {
 
     private float magnitude;
     private float maxShield;
     private float rechargeRate;
-    private long lastTime;
     private long rechargeDelay;
+    private final Runnable recharge = this::rechargeShield;
+    private TimerWheel.Timeout pending;
 
-    public Shield(ModPosition position, float magnitude, float rechargeRate, long rechargeTime) {
-        super(position);
-        this.rechargeDelay = rechargeTime;
+    public Shield(ModPosition position, SimulationClock clock, float magnitude, float rechargeRate, long rechargeTime) {
+        super(position, clock);
+        this.rechargeDelay = TimeUnit.MILLISECONDS.toNanos(rechargeTime);
         this.rechargeRate = rechargeRate;
         this.magnitude = magnitude;
         maxShield = magnitude;
         unload();
     }
 
+    /**
+     * Starts recharging once the recharge delay has passed.
+     */
     public void unload() {
-        lastTime = System.currentTimeMillis();
+        suspendRecharge();
+        pending = clock.schedule(rechargeDelay, recharge);
+    }
+
+    public void suspendRecharge() {
+        clock.cancel(pending);
+        pending = null;
     }
 
     public boolean isReady() {
@@ -29,16 +44,17 @@ public class Shield extends Module {
         return magnitude;
     }
 
-    public void rechargeShield() {
-        // TODO once expired time since last use is calculated properly, set -1 to rechargeDelay
-        System.out.println(System.currentTimeMillis() + "                   " + lastTime);
-        if(System.currentTimeMillis() - lastTime > rechargeDelay) {
-            if(magnitude < maxShield) {
-                magnitude += rechargeRate;
-            }
-            if(magnitude > maxShield) {
-                magnitude = maxShield;
-            }
+    // fired by the clock once per tick until the shield is full
+    private void rechargeShield() {
+        pending = null;
+        if(magnitude < maxShield) {
+            magnitude += rechargeRate;
+        }
+        if(magnitude > maxShield) {
+            magnitude = maxShield;
+        }
+        if(magnitude < maxShield) {
+            pending = clock.schedule(clock.getTickNanos(), recharge);
         }
     }
 
@@ -1,21 +1,27 @@
 package engine.objects.modules;
 
+import engine.SimulationClock;
+import engine.TimerWheel;
+
+import java.util.concurrent.TimeUnit;
+
 public class Thruster extends Module {
 
     private float magnitude;
-    private long lastTime;
     private float fuel;
     private final float maxFuel;
     private float rechargeRate;
     private long rechargeDelay;
+    private final Runnable recharge = this::rechargeFuel;
+    private TimerWheel.Timeout pending;
 
-    public Thruster(ModPosition position, float magnitude, float fuel, float rechargeRate, long rechargeDelay) {
-        super(position);
+    public Thruster(ModPosition position, SimulationClock clock, float magnitude, float fuel, float rechargeRate, long rechargeDelay) {
+        super(position, clock);
         this.magnitude = magnitude;
         this.fuel = fuel;
         maxFuel = fuel;
         this.rechargeRate = rechargeRate;
-        this.rechargeDelay = rechargeDelay;
+        this.rechargeDelay = TimeUnit.MILLISECONDS.toNanos(rechargeDelay);
         unload();
     }
 
@@ -27,8 +33,12 @@ public class Thruster extends Module {
         return fuel;
     }
 
+    /**
+     * Starts refuelling once the recharge delay has passed.
+     */
     public void unload() {
-        lastTime = System.currentTimeMillis();
+        clock.cancel(pending);
+        pending = clock.schedule(rechargeDelay, recharge);
     }
 
     public boolean hasFuel() {
@@ -36,21 +46,25 @@ public class Thruster extends Module {
     }
 
     public void drainFuel() {
+        clock.cancel(pending);
+        pending = null;
         fuel -= magnitude;
         if(fuel < 0) {
             fuel = 0f;
         }
     }
 
-    public void rechargeFuel() {
-        // TODO once expired time since last use is calculated properly, set -1 to rechargeDelay
-        if(System.currentTimeMillis() - lastTime > rechargeDelay) {
-            if(fuel < maxFuel) {
-                fuel += rechargeRate;
-            }
-            if(fuel > maxFuel) {
-                fuel = maxFuel;
-            }
+    // fired by the clock once per tick until the tank is full
+    private void rechargeFuel() {
+        pending = null;
+        if(fuel < maxFuel) {
+            fuel += rechargeRate;
+        }
+        if(fuel > maxFuel) {
+            fuel = maxFuel;
+        }
+        if(fuel < maxFuel) {
+            pending = clock.schedule(clock.getTickNanos(), recharge);
         }
     }
 }
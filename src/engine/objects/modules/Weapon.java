@@ -1,31 +1,37 @@
 package engine.objects.modules;
 
+import engine.SimulationClock;
 import engine.graph.Mesh;
+import engine.objects.MissilePool;
 import engine.objects.Ship;
 
+import java.util.concurrent.TimeUnit;
+
 public abstract class Weapon extends Module {
 
+    // reload interval in nanoseconds of simulation time
     protected long interval;
-    protected long lastTime;
     protected float missileRadius;
     protected float missileSpeed;
     protected float missileRange;
     protected float missileDamage;
     protected float missileAcceleration;
     protected Ship owner;
+    // pool of the owner's world, missiles are taken from it
+    protected MissilePool missilePool;
 
     protected Mesh mesh;
 
-    public Weapon(ModPosition position, long interval, Mesh mesh, float missileRadius, float missileSpeed, float missileRange, float missileDamage, float missileAcceleration, Ship owner) {
-        super(position);
-        this.interval = interval;
+    public Weapon(ModPosition position, SimulationClock clock, long interval, Mesh mesh, float missileRadius, float missileSpeed, float missileRange, float missileDamage, float missileAcceleration, MissilePool missilePool, Ship owner) {
+        super(position, clock);
+        this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
         this.mesh = mesh;
         this.missileRadius = missileRadius;
         this.missileSpeed = missileSpeed;
         this.missileRange = missileRange;
         this.missileDamage = missileDamage;
         this.missileAcceleration = missileAcceleration;
+        this.missilePool = missilePool;
         this.owner = owner;
-        lastTime = System.currentTimeMillis();
     }
 }
@@ -0,0 +1,590 @@
+package game;
+
+import engine.FramePacer;
+import engine.SimulationClock;
+import engine.TimingHistogram;
+import engine.Utils;
+import engine.Window;
+import engine.bench.Benchmark;
+import engine.bench.BenchmarkRunner;
+import engine.collision.AabbTree;
+import engine.collision.CollisionBatch;
+import engine.graph.FontTexture;
+import engine.graph.Mesh;
+import engine.graph.OBJLoader;
+import engine.graph.PNGDecoder;
+import engine.graph.Transformation;
+import engine.input.MouseInput;
+import engine.objects.GameObject;
+import engine.objects.Missile;
+import engine.objects.MissilePool;
+import engine.objects.Obstacle;
+import engine.objects.Registry;
+import engine.objects.Ship;
+import engine.objects.TextItem;
+import engine.objects.TransformStore;
+import engine.objects.modules.Broadsides;
+import engine.objects.modules.Module;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks of the engine's hot paths. Everything that doesn't need OpenGL runs headless.
+ *
+ * Arguments: [--json file] [--gl] [--quick] [--filter text]
+ */
+public class DemoBenchmarks {
+
+    private static final int[] MISSILE_COUNTS = {100, 1_000, 10_000};
+    private static final int[] SHIP_COUNTS = {2, 20};
+    private static final int[] OBSTACLE_COUNTS = {10, 200};
+    private static final float WORLD_EXTENT = 100f;
+    private static final int[] TREE_SIZES = {1_000, 10_000};
+    private static final int[] CANDIDATE_COUNTS = {1, 4, 16, 64};
+    private static final int[] FRAME_RATES = {30, 60, 144};
+    private static final long SEED = 42L;
+    // objects of the micro benchmarks, the game benchmarks use the store of their game
+    private static final TransformStore TRANSFORMS = new TransformStore();
+
+    public static void main(String[] args) {
+        String jsonFile = null;
+        String filter = null;
+        boolean gl = false;
+        boolean quick = false;
+        for(int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json":
+                    jsonFile = args[++i];
+                    break;
+                case "--gl":
+                    gl = true;
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--filter":
+                    filter = args[++i];
+                    break;
+                default:
+                    System.err.println("unknown argument " + args[i]);
+                    System.exit(-1);
+            }
+        }
+
+        Window window = null;
+        try {
+            if(gl) {
+                window = new Window("AndromedaEngine benchmarks", 640, 480, false);
+                window.init();
+            }
+            BenchmarkRunner runner = new BenchmarkRunner();
+            runner.setGl(gl);
+            if(quick) {
+                runner.setWarmupIterations(2);
+                runner.setMeasurementIterations(3);
+                runner.setIterationTime(50_000_000L);
+            }
+            for(Benchmark benchmark : createBenchmarks()) {
+                if(filter == null || benchmark.getName().contains(filter)) {
+                    runner.add(benchmark);
+                }
+            }
+            List<BenchmarkRunner.Result> results = runner.runAll();
+            if(jsonFile != null) {
+                try (Writer writer = jsonFile.equals("-") ? new OutputStreamWriter(System.out) : new FileWriter(jsonFile)) {
+                    BenchmarkRunner.writeJson(results, writer);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
+        System.exit(0);
+    }
+
+    private static List<Benchmark> createBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(new Benchmark("GameObject.collides") {
+            private final GameObject first = new Obstacle(TRANSFORMS, null, 1f);
+            private final GameObject second = new Obstacle(TRANSFORMS, null, 1f);
+            private int i;
+
+            @Override
+            public void setup() {
+                first.setPosition(0, 0, 0);
+            }
+
+            @Override
+            public Object run() {
+                // alternate between hits and misses
+                second.setPosition((i++ & 3), 0, 1f);
+                return first.collides(second);
+            }
+        });
+
+        benchmarks.add(new Benchmark("Ship.collides") {
+            private final Ship ship = new Ship(TRANSFORMS, null, 0, 0.001f, 10f);
+            private final Ship other = new Ship(TRANSFORMS, null, 0, 0.001f, 10f);
+            private final GameObject obstacle = new Obstacle(TRANSFORMS, null, 1f);
+            private int i;
+
+            @Override
+            public void setup() {
+                ship.setPosition(0, 0, 0);
+                ship.setRotation(0, 30f, 0);
+                other.setRotation(0, 120f, 0);
+            }
+
+            @Override
+            public Object run() {
+                // mostly pairs inside the bounding spheres, so the box test runs
+                float offset = (i++ & 7) * 0.5f;
+                obstacle.setPosition(offset, 0, 1f);
+                other.setPosition(1f, 0, offset);
+                return ship.collides(obstacle) ^ ship.collides(other);
+            }
+        });
+
+        benchmarks.add(new Benchmark("GameObject.moveForward") {
+            private final GameObject gameObject = new Obstacle(TRANSFORMS, null, 1f, 0.1f, 0f, 1f);
+
+            @Override
+            public void setup() {
+                gameObject.setPosition(0, 0, 0);
+                gameObject.setRotation(0, 30f, 0);
+            }
+
+            @Override
+            public Object run() {
+                gameObject.moveForward();
+                return gameObject.getPosition();
+            }
+        });
+
+        // one tick of flight with the expiry check, relaunching when the range is used up
+        benchmarks.add(new Benchmark("Missile.moveForward") {
+            private final Missile missile = new Missile(TRANSFORMS, null, 0.2f, 0.5f, 12f, 0.3f, null);
+
+            @Override
+            public Object run() {
+                if(missile.isExhausted()) {
+                    missile.setPosition(0, 0, 3f);
+                }
+                missile.moveForward();
+                return missile.isExhausted();
+            }
+        });
+
+        benchmarks.add(new Benchmark("Transformation.buildModelViewMatrix") {
+            private final Transformation transformation = new Transformation();
+            private final GameObject gameObject = new Obstacle(TRANSFORMS, null, 1f);
+            private final Matrix4f viewMatrix = new Matrix4f().translate(0, -2f, -7f);
+
+            @Override
+            public void setup() {
+                gameObject.setPosition(3f, 1f, -2f);
+                gameObject.setRotation(10f, 45f, 0);
+                gameObject.setScale(1.5f);
+            }
+
+            @Override
+            public Object run() {
+                return transformation.buildModelViewMatrix(gameObject, viewMatrix);
+            }
+        });
+
+        benchmarks.add(new Benchmark("PNGDecoder.decode") {
+            private byte[] data;
+            private ByteBuffer buffer;
+
+            @Override
+            public void setup() throws Exception {
+                if(data == null) {
+                    data = readResource("/resources/textures/asteroid.png");
+                }
+            }
+
+            @Override
+            public Object run() throws Exception {
+                PNGDecoder decoder = new PNGDecoder(new ByteArrayInputStream(data));
+                int size = 4 * decoder.getWidth() * decoder.getHeight();
+                if(buffer == null || buffer.capacity() < size) {
+                    buffer = ByteBuffer.allocateDirect(size);
+                }
+                buffer.clear();
+                decoder.decode(buffer, decoder.getWidth() * 4, PNGDecoder.Format.RGBA);
+                return buffer.position();
+            }
+        }.param("file", "asteroid.png"));
+
+        benchmarks.add(new Benchmark("OBJLoader.loadMesh") {
+            @Override
+            public Object run() throws Exception {
+                Mesh mesh = OBJLoader.loadMesh("/resources/models/ship.obj");
+                int vertexCount = mesh.getVertexCount();
+                mesh.deleteBuffers();
+                return vertexCount;
+            }
+
+            @Override
+            public boolean needsGl() {
+                return true;
+            }
+        }.param("file", "ship.obj"));
+
+        benchmarks.add(new Benchmark("TextItem.setText") {
+            private TextItem textItem;
+            private int i;
+
+            @Override
+            public void setup() throws Exception {
+                if(textItem == null) {
+                    FontTexture fontTexture = new FontTexture(new Font("Arial", Font.PLAIN, 20), "ISO-8859-1");
+                    textItem = new TextItem(TRANSFORMS, "", fontTexture);
+                }
+            }
+
+            @Override
+            public Object run() {
+                textItem.setText("Shield: " + (i++ & 1023) + " Fuel: 0.75 Speed: 0.0123");
+                return textItem.getMesh();
+            }
+
+            @Override
+            public boolean needsGl() {
+                return true;
+            }
+        });
+
+        for(int missileCount : MISSILE_COUNTS) {
+            for(int shipCount : SHIP_COUNTS) {
+                for(int obstacleCount : OBSTACLE_COUNTS) {
+                    benchmarks.add(updateMissiles(missileCount, shipCount, obstacleCount));
+                }
+            }
+        }
+        for(int missileCount : MISSILE_COUNTS) {
+            benchmarks.add(tick(missileCount, SHIP_COUNTS[SHIP_COUNTS.length - 1], OBSTACLE_COUNTS[OBSTACLE_COUNTS.length - 1]));
+        }
+        for(int size : TREE_SIZES) {
+            benchmarks.add(treeNearest(size));
+            benchmarks.add(treeRaycast(size));
+        }
+        for(int count : CANDIDATE_COUNTS) {
+            benchmarks.add(impactPerPair(count));
+            benchmarks.add(impactBatch(count));
+        }
+        benchmarks.add(volley());
+        for(int fps : FRAME_RATES) {
+            benchmarks.add(framePacing(fps));
+        }
+        return benchmarks;
+    }
+
+    private static GameObject[] createCandidates(int count) {
+        Random random = new Random(SEED);
+        GameObject[] candidates = new GameObject[count];
+        for(int i = 0; i < count; i++) {
+            candidates[i] = new Obstacle(TRANSFORMS, null, 0.5f + random.nextFloat());
+            candidates[i].setPosition(random.nextFloat() * 20f - 10f, 0, random.nextFloat() * 20f - 10f);
+        }
+        return candidates;
+    }
+
+    private static Missile createSweepingMissile() {
+        Missile missile = new Missile(TRANSFORMS, null, 0.2f, 4f, 100f, 0.3f, null);
+        missile.setPosition(-12f, 0, 0.5f);
+        missile.moveTo(12f, 0, 0.5f);
+        return missile;
+    }
+
+    // earliest impact of one swept missile, testing one object pair at a time
+    private static Benchmark impactPerPair(int count) {
+        return new Benchmark("GameObject.timeOfImpact") {
+            private final GameObject[] candidates = createCandidates(count);
+            private final Missile missile = createSweepingMissile();
+
+            @Override
+            public Object run() {
+                int first = -1;
+                float firstTime = Float.MAX_VALUE;
+                for(int i = 0; i < candidates.length; i++) {
+                    float time = missile.timeOfImpact(candidates[i]);
+                    if(time >= 0 && time < firstTime) {
+                        first = i;
+                        firstTime = time;
+                    }
+                }
+                return first;
+            }
+        }.param("candidates", count);
+    }
+
+    // the same through the packed batch kernel, the grid fills the batch while querying
+    private static Benchmark impactBatch(int count) {
+        return new Benchmark("CollisionBatch.firstImpact") {
+            private final Missile missile = createSweepingMissile();
+            private final CollisionBatch batch = new CollisionBatch();
+            private GameObject[] candidates;
+
+            @Override
+            public void setup() {
+                if(candidates == null) {
+                    candidates = createCandidates(count);
+                }
+                batch.clear();
+                for(GameObject candidate : candidates) {
+                    batch.add(candidate);
+                }
+            }
+
+            @Override
+            public Object run() {
+                return batch.firstImpact(-12f, 0.5f, 12f, 0.5f, missile.getRadius(), null);
+            }
+
+            @Override
+            public void finish() {
+                batch.clear();
+                release(candidates);
+                candidates = null;
+            }
+        }.param("candidates", count);
+    }
+
+    // a broadside volley through the registry and back into the missile pool, like a despawn would
+    private static Benchmark volley() {
+        return new Benchmark("Broadsides.load") {
+            private final Ship ship = new Ship(TRANSFORMS, null, 0, 0.001f, 10f);
+            private final MissilePool missilePool = new MissilePool(TRANSFORMS);
+            private final Broadsides broadsides = new Broadsides(Module.ModPosition.BROADSIDES, new SimulationClock(30), 1_000, 3, 1.5f,
+                    null, missilePool, ship, 0.2f, 0.5f, 12f, 0.3f, 0.005f);
+            private final Registry<Missile> missiles = new Registry<>();
+            private final List<Missile> volley = new ArrayList<>();
+
+            @Override
+            public Object run() {
+                broadsides.load(ship.getPosition(), ship.getRotation(), ship.getForward(new Vector3f()), ship.getLength(), ship.getWidth(), Broadsides.Side.LEFT, volley);
+                missiles.addAll(volley);
+                for(int i = 0; i < volley.size(); i++) {
+                    Missile missile = volley.get(i);
+                    missiles.remove(missile);
+                    missilePool.recycle(missile);
+                }
+                volley.clear();
+                return missiles.size();
+            }
+        }.param("missiles", 9);
+    }
+
+    private static void release(GameObject[] gameObjects) {
+        for(GameObject gameObject : gameObjects) {
+            gameObject.release();
+        }
+    }
+
+    private static GameObject[] createTreeObjects(int size) {
+        Random random = new Random(SEED);
+        GameObject[] gameObjects = new GameObject[size];
+        for(int i = 0; i < size; i++) {
+            gameObjects[i] = new Obstacle(TRANSFORMS, null, 1f);
+            gameObjects[i].setPosition((random.nextFloat() * 2f - 1f) * WORLD_EXTENT, 0, (random.nextFloat() * 2f - 1f) * WORLD_EXTENT);
+        }
+        return gameObjects;
+    }
+
+    /**
+     * Idle frames paced like the render loop without v-sync. The time per operation is the frame slot,
+     * how late the frames start and how much their length varies is printed as percentiles at the end.
+     * Warmup frames are included, the pacing hardly depends on the jit.
+     */
+    private static Benchmark framePacing(int fps) {
+        return new Benchmark("FramePacer.sync") {
+            private final FramePacer pacer = new FramePacer(fps);
+            private final TimingHistogram misses = new TimingHistogram("miss");
+            // distance of the frame length from the slot
+            private final TimingHistogram jitter = new TimingHistogram("jitter");
+            private final long frameSlot = 1_000_000_000L / fps;
+            private long frameStart;
+
+            @Override
+            public void setup() {
+                pacer.start();
+                frameStart = 0;
+            }
+
+            @Override
+            public Object run() {
+                misses.record(pacer.sync());
+                long now = System.nanoTime();
+                if(frameStart != 0) {
+                    jitter.record(Math.abs(now - frameStart - frameSlot));
+                }
+                frameStart = now;
+                return now;
+            }
+
+            @Override
+            public void finish() {
+                System.out.println("FramePacer.sync {fps=" + fps + "} " + misses);
+                System.out.println("FramePacer.sync {fps=" + fps + "} " + jitter);
+                misses.reset();
+                jitter.reset();
+            }
+        }.param("fps", fps);
+    }
+
+    private static AabbTree<GameObject> createTree(GameObject[] gameObjects) {
+        AabbTree<GameObject> tree = new AabbTree<>(1f);
+        for(GameObject gameObject : gameObjects) {
+            tree.insert(gameObject);
+        }
+        return tree;
+    }
+
+    private static Benchmark treeNearest(int size) {
+        return new Benchmark("AabbTree.nearest") {
+            private final List<GameObject> result = new ArrayList<>();
+            private GameObject[] gameObjects;
+            private AabbTree<GameObject> tree;
+            private int i;
+
+            @Override
+            public void setup() {
+                if(tree == null) {
+                    gameObjects = createTreeObjects(size);
+                    tree = createTree(gameObjects);
+                }
+            }
+
+            @Override
+            public Object run() {
+                result.clear();
+                float x = (i++ % 200) - 100f;
+                return tree.nearest(x, 0, -x, 4, null, result).size();
+            }
+
+            @Override
+            public void finish() {
+                tree.clear();
+                tree = null;
+                release(gameObjects);
+            }
+        }.param("objects", size).param("k", 4);
+    }
+
+    private static Benchmark treeRaycast(int size) {
+        return new Benchmark("AabbTree.raycast") {
+            private final AabbTree.RayHit<GameObject> hit = new AabbTree.RayHit<>();
+            private GameObject[] gameObjects;
+            private AabbTree<GameObject> tree;
+            private int i;
+
+            @Override
+            public void setup() {
+                if(tree == null) {
+                    gameObjects = createTreeObjects(size);
+                    tree = createTree(gameObjects);
+                }
+            }
+
+            @Override
+            public Object run() {
+                float angle = (i++ % 360) * 0.0174533f;
+                return tree.raycast(0, 0, 0, (float) Math.cos(angle), 0, (float) Math.sin(angle), 50f, null, hit);
+            }
+
+            @Override
+            public void finish() {
+                tree.clear();
+                tree = null;
+                release(gameObjects);
+            }
+        }.param("objects", size);
+    }
+
+    // one complete simulation tick with all systems
+    private static Benchmark tick(int missileCount, int shipCount, int obstacleCount) {
+        return new Benchmark("DemoGame.update") {
+            private final MouseInput mouseInput = new MouseInput();
+            private DemoGame game;
+
+            @Override
+            public void setup() {
+                if(game == null) {
+                    game = new DemoGame();
+                    game.setClock(new SimulationClock(30));
+                }
+                // releases the world of the previous iteration, so its slots and missiles are reused
+                game.setupStressTest(shipCount, obstacleCount, missileCount, WORLD_EXTENT, SEED);
+            }
+
+            @Override
+            public Object run() {
+                game.update(1f / 30f, mouseInput);
+                return game.getMissileCount();
+            }
+
+            @Override
+            public void finish() {
+                game.cleanup();
+                game = null;
+            }
+        }.param("missiles", missileCount).param("ships", shipCount).param("obstacles", obstacleCount);
+    }
+
+    // one full pass of the missile collision system over a random world
+    private static Benchmark updateMissiles(int missileCount, int shipCount, int obstacleCount) {
+        return new Benchmark("DemoGame.updateMissiles") {
+            private DemoGame game;
+
+            @Override
+            public void setup() {
+                if(game == null) {
+                    game = new DemoGame();
+                    game.setClock(new SimulationClock(30));
+                }
+                game.setupStressTest(shipCount, obstacleCount, missileCount, WORLD_EXTENT, SEED);
+                // the first pass removes the missiles that spawned inside something
+                game.updateMissiles();
+            }
+
+            @Override
+            public Object run() {
+                game.updateMissiles();
+                return game.getMissileCount();
+            }
+
+            @Override
+            public void finish() {
+                game.cleanup();
+                game = null;
+            }
+        }.param("missiles", missileCount).param("ships", shipCount).param("obstacles", obstacleCount);
+    }
+
+    private static byte[] readResource(String fileName) throws Exception {
+        try (InputStream in = Utils.class.getResourceAsStream(fileName)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
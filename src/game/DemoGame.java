@@ -1,8 +1,16 @@
 package game;
 
 import engine.*;
+import engine.collision.AabbTree;
+import engine.collision.CollisionBatch;
+import engine.collision.CollisionFilter;
+import engine.collision.ContactManager;
+import engine.collision.SpatialHash;
 import engine.graph.*;
 import engine.input.MouseInput;
+import engine.jobs.Job;
+import engine.jobs.JobSystem;
+import engine.jobs.TaskGraph;
 import engine.objects.*;
 import engine.objects.modules.Broadsides;
 import engine.objects.modules.Front;
@@ -11,8 +19,9 @@ import engine.objects.modules.Thruster;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 
 import static engine.objects.GameObject.LifeState.ALIVE;
 import static engine.objects.GameObject.LifeState.DEAD;
@@ -24,21 +33,113 @@ public class DemoGame implements IGameLogic {
     private final Renderer renderer;
 
     private static final float SHIP_ACCELERATION = 0.001f;
+    private static final int PLAYER_TEAM = 1;
+    private static final int ENEMY_TEAM = 2;
+    private static final int UPDATE_CHUNK_SIZE = 512;
+    // a hit search costs more than moving an object
+    private static final int MISSILE_CHUNK_SIZE = 256;
+    private static final long METRICS_REFRESH_TIME = 500_000_000L;
+    // about the diameter of the big ships, so most objects touch few cells
+    private static final float GRID_CELL_SIZE = 4f;
+    // objects may move this far before their tree leaf is refitted
+    private static final float TREE_MARGIN = 1f;
+
+    // resources shared between the systems of one tick
+    // allocating a transform may grow the store arrays, so every system touching transforms reads this
+    private static final String SLOTS = "slots";
+    private static final String SHIP_TRANSFORMS = "shipTransforms";
+    private static final String MISSILE_TRANSFORMS = "missileTransforms";
+    private static final String OBSTACLE_TRANSFORMS = "obstacleTransforms";
+    private static final String GAME_OBJECTS = "gameObjects";
+    private static final String SHIPS = "ships";
+    private static final String MISSILES = "missiles";
+    private static final String OBSTACLES = "obstacles";
+    // the camera and the skybox following it
+    private static final String CAMERA = "camera";
+    private static final String SCENE = "scene";
+    private static final String HUD = "hud";
+    private static final String GRIDS = "grids";
+    // tree queries share scratch buffers, so querying counts as writing
+    private static final String TREE = "tree";
+    private static final String AIM = "aim";
 
     private List<GameObject> gameObjects;
     private GameObject player;
-    private ShipGroup ships;
-    private ObstacleGroup obstacles;
-    private MissileGroup missiles;
+    private Registry<Ship> ships;
+    private Registry<Obstacle> obstacles;
+    private Registry<Missile> missiles;
+    private final SpatialHash<Ship> shipGrid;
+    private final SpatialHash<Obstacle> obstacleGrid;
+    private final List<Ship> shipCandidates;
+    private final List<Obstacle> obstacleCandidates;
+    // ships and obstacles only. the tree just serves the enemy aim, which looks for ships, and missile hits are
+    // found by the grid sweeps, so missiles would only add a refit per missile and tick without any query using them
+    private final AabbTree<GameObject> world;
+    private final List<GameObject> nearestScratch;
+    private final CollisionBatch missileTargets;
+    private final ContactManager shipContacts;
 
     private Scene scene;
     private ThirdPersonCamera camera;
     private Hud hud;
+    private final String[] hudTexts;
+    private boolean headless;
+
+    // transforms of everything simulated in this game, and the spent missiles kept for reuse
+    private final TransformStore transforms;
+    private final MissilePool missilePool;
+    private final JobSystem jobSystem;
+    private TaskGraph systems;
+    private MouseInput mouseInput;
+    private SimulationClock clock;
+    private EngineMetrics metrics;
+    private volatile boolean metricsVisible;
+    private boolean metricsKeyDown;
+    private long metricsRefreshTime;
+    private final List<String> metricsLines;
+    private CommandBuffer[] chunkCommands;
+    private final CommandBuffer commands;
+    private CombatBuffer[] combatBuffers;
+    private CollisionBatch[] targetBatches;
+    // shots the enemies decided on, fired in this order
+    private final List<Ship> shooters;
+    private final List<Shot> shots;
+    // missiles of the volley being fired, emptied after each one
+    private final List<Missile> volley;
 
     public DemoGame() {
         renderer = new Renderer();
         scene = new Scene();
         camera = new ThirdPersonCamera();
+        hudTexts = new String[5];
+        transforms = new TransformStore();
+        missilePool = new MissilePool(transforms);
+        jobSystem = new JobSystem();
+        chunkCommands = new CommandBuffer[0];
+        commands = new CommandBuffer();
+        combatBuffers = new CombatBuffer[0];
+        targetBatches = new CollisionBatch[0];
+        metricsLines = new ArrayList<>();
+        shipGrid = new SpatialHash<>(GRID_CELL_SIZE);
+        obstacleGrid = new SpatialHash<>(GRID_CELL_SIZE);
+        shipCandidates = new ArrayList<>();
+        obstacleCandidates = new ArrayList<>();
+        world = new AabbTree<>(TREE_MARGIN);
+        nearestScratch = new ArrayList<>();
+        missileTargets = new CollisionBatch();
+        shipContacts = new ContactManager(new ShipContactListener());
+        shooters = new ArrayList<>();
+        shots = new ArrayList<>();
+        volley = new ArrayList<>();
+    }
+
+    private enum Shot {
+        LEFT, RIGHT, FRONT
+    }
+
+    @Override
+    public void setClock(SimulationClock clock) {
+        this.clock = clock;
     }
 
     @Override
@@ -67,53 +168,76 @@ public class DemoGame implements IGameLogic {
         shipMesh.setMaterial(shipMaterial);
 
         // skybox
-        SkyBox skyBox = new SkyBox("/resources/models/skybox.obj", "/resources/textures/skybox.png");
+        SkyBox skyBox = new SkyBox(transforms, "/resources/models/skybox.obj", "/resources/textures/skybox.png");
         skyBox.setScale(100f);
         scene.setSkyBox(skyBox);
 
+        setupGameObjects(mesh, missileMesh, shipMesh, shipMesh2);
+
+        // lights
+        setupLights();
+
+        // create hud
+        setupHud();
+
+        setupSystems();
+    }
+
+    @Override
+    public void initHeadless() throws Exception {
+        // no meshes, skybox and hud, since those need an OpenGL context
+        headless = true;
+        setupGameObjects(null, null, null, null);
+        setupLights();
+        setupSystems();
+    }
+
+    private void setupGameObjects(Mesh mesh, Mesh missileMesh, Mesh shipMesh, Mesh shipMesh2) {
         // create game objects
         float cameraDistance = 7f;
 
         // create player ship
-        GameObject ship = new Ship(shipMesh, 0, SHIP_ACCELERATION, 10f);
-        Front frontWeapon = new Front(FRONT, 250, 4f, missileMesh, (Ship) ship, 0.2f, 1.1f, 36f, 0.08f, 0.001f);
-        Broadsides broadsidesWeapon = new Broadsides(BROADSIDES, 1_000, 3, 1f, missileMesh, (Ship) ship, 0.2f, 0.5f, 12f, 0.3f, 0.005f);
-        Shield shield = new Shield(DECK, 2f, 0.01f,  10_000);
-        Thruster thruster = new Thruster(THRUSTERS, 0.002f, 1f, 0.0001f, 1_000);
+        GameObject ship = new Ship(transforms, shipMesh, 0, SHIP_ACCELERATION, 10f);
+        Front frontWeapon = new Front(FRONT, clock, 250, 4f, missileMesh, missilePool, (Ship) ship, 0.2f, 1.1f, 36f, 0.08f, 0.001f);
+        Broadsides broadsidesWeapon = new Broadsides(BROADSIDES, clock, 1_000, 3, 1f, missileMesh, missilePool, (Ship) ship, 0.2f, 0.5f, 12f, 0.3f, 0.005f);
+        Shield shield = new Shield(DECK, clock, 2f, 0.01f,  10_000);
+        Thruster thruster = new Thruster(THRUSTERS, clock, 0.002f, 1f, 0.0001f, 1_000);
         ((Ship) ship).init(frontWeapon, broadsidesWeapon, shield, thruster);
+        ship.setTeam(PLAYER_TEAM);
 
         // create enemy ships
-        GameObject enemyShip = new Ship(shipMesh2,0, SHIP_ACCELERATION, 5f);
-        Front frontWeaponEnemy = new Front(FRONT, 5_000, 4f, missileMesh, (Ship) enemyShip, 0.2f, 1.1f, 36f, 0.08f, 0.001f);
-        Broadsides broadsidesWeaponEnemy = new Broadsides(BROADSIDES, 1_000, 3, 1.5f, missileMesh, (Ship) enemyShip, 0.2f, 0.5f, 12f, 0.3f, 0.005f);
-        Shield shieldEnemy = new Shield(DECK, 2f, 0.01f, 10_000);
-        Thruster thrusterEnemy = new Thruster(THRUSTERS, 0.002f, 0.5f, 0.0001f, 1_000);
+        GameObject enemyShip = new Ship(transforms, shipMesh2,0, SHIP_ACCELERATION, 5f);
+        Front frontWeaponEnemy = new Front(FRONT, clock, 5_000, 4f, missileMesh, missilePool, (Ship) enemyShip, 0.2f, 1.1f, 36f, 0.08f, 0.001f);
+        Broadsides broadsidesWeaponEnemy = new Broadsides(BROADSIDES, clock, 1_000, 3, 1.5f, missileMesh, missilePool, (Ship) enemyShip, 0.2f, 0.5f, 12f, 0.3f, 0.005f);
+        Shield shieldEnemy = new Shield(DECK, clock, 2f, 0.01f, 10_000);
+        Thruster thrusterEnemy = new Thruster(THRUSTERS, clock, 0.002f, 0.5f, 0.0001f, 1_000);
         ((Ship) enemyShip).init(frontWeaponEnemy, broadsidesWeaponEnemy, shieldEnemy, thrusterEnemy);
+        enemyShip.setTeam(ENEMY_TEAM);
 
         // setup objects
         // TODO read positions and rotations from save file
         enemyShip.setPosition(-10f, 0f, 0f);
         enemyShip.setRadius(2f);
-        GameObject asteroid1 = new Obstacle(mesh, 1f);
-
-        GameObject asteroid2 = new Obstacle(mesh, 1f);
-        GameObject asteroid3 = new Obstacle(mesh, 1f);
-        GameObject asteroid4 = new Obstacle(mesh, 1f);
-        GameObject asteroid5 = new Obstacle(mesh, 1f);
-        GameObject asteroid6 = new Obstacle(mesh, 1f);
-        GameObject asteroid7 = new Obstacle(mesh, 1f);
-        GameObject asteroid8 = new Obstacle(mesh, 1f);
-        GameObject asteroid9 = new Obstacle(mesh, 1f);
-        GameObject asteroid10 = new Obstacle(mesh, 1f);
-        GameObject asteroid11 = new Obstacle(mesh, 1f);
-        GameObject asteroid12 = new Obstacle(mesh, 1f);
-        GameObject asteroid13 = new Obstacle(mesh, 1f);
-        GameObject asteroid14 = new Obstacle(mesh, 1f);
-        GameObject asteroid15 = new Obstacle(mesh, 1f);
-        GameObject asteroid16 = new Obstacle(mesh, 1f);
-        GameObject asteroid17 = new Obstacle(mesh, 1f);
-        GameObject asteroid18 = new Obstacle(mesh, 1f);
-        GameObject asteroid19 = new Obstacle(mesh, 1f);
+        GameObject asteroid1 = new Obstacle(transforms, mesh, 1f);
+
+        GameObject asteroid2 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid3 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid4 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid5 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid6 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid7 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid8 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid9 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid10 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid11 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid12 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid13 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid14 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid15 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid16 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid17 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid18 = new Obstacle(transforms, mesh, 1f);
+        GameObject asteroid19 = new Obstacle(transforms, mesh, 1f);
 
         asteroid1.setDurability(6.0f);
         asteroid1.setPosition(-4f, 0, 2f);
@@ -180,18 +304,20 @@ public class DemoGame implements IGameLogic {
         gameObjects.add(asteroid17);
         gameObjects.add(asteroid18);
         gameObjects.add(asteroid19);
-        gameObjects.add(skyBox);
-        scene.setGameObjectsMeshes(gameObjects);
+        if(scene.getSkyBox() != null) {
+            gameObjects.add(scene.getSkyBox());
+        }
+        scene.addAll(gameObjects);
         camera.init(ship, cameraDistance);
 
         // add player and ships
-        ships = new ShipGroup();
+        ships = new Registry<>();
         ships.add((Ship) enemyShip);
         ships.add((Ship) ship);
         player = ship;
 
         // add obstacles
-        obstacles = new ObstacleGroup();
+        obstacles = new Registry<>();
         obstacles.add((Obstacle) asteroid1);
         obstacles.add((Obstacle) asteroid2);
         obstacles.add((Obstacle) asteroid3);
@@ -204,14 +330,135 @@ public class DemoGame implements IGameLogic {
         obstacles.add((Obstacle) asteroid10);
 
         // prepare missiles
-        missiles = new MissileGroup();
+        missiles = new Registry<>();
+        setupBroadphase();
+    }
 
-        // lights
-        setupLights();
+    /**
+     * Fills the world with randomly placed objects without meshes. Used to benchmark the update systems.
+     */
+    void setupStressTest(int shipCount, int obstacleCount, int missileCount, float extent, long seed) {
+        // there are no meshes to clean up
+        headless = true;
+        releaseWorld();
+        Random random = new Random(seed);
+        gameObjects = new ArrayList<>();
+        ships = new Registry<>();
+        obstacles = new Registry<>();
+        missiles = new Registry<>();
+        for(int i = 0; i < shipCount; i++) {
+            Ship ship = new Ship(transforms, null, 0, SHIP_ACCELERATION, 10f);
+            Front front = new Front(FRONT, clock, 5_000, 4f, null, missilePool, ship, 0.2f, 1.1f, 36f, 0.08f, 0.001f);
+            Broadsides broadsides = new Broadsides(BROADSIDES, clock, 1_000, 3, 1.5f, null, missilePool, ship, 0.2f, 0.5f, 12f, 0.3f, 0.005f);
+            Shield shield = new Shield(DECK, clock, 2f, 0.01f, 10_000);
+            Thruster thruster = new Thruster(THRUSTERS, clock, 0.002f, 0.5f, 0.0001f, 1_000);
+            ship.init(front, broadsides, shield, thruster);
+            // every ship for itself
+            ship.setTeam(i + 1);
+            ship.setPosition(randomCoordinate(random, extent), 0, randomCoordinate(random, extent));
+            ship.setRadius(2f);
+            ships.add(ship);
+            gameObjects.add(ship);
+        }
+        for(int i = 0; i < obstacleCount; i++) {
+            Obstacle obstacle = new Obstacle(transforms, null, 1f);
+            obstacle.setDurability(6.0f);
+            obstacle.setPosition(randomCoordinate(random, extent), randomCoordinate(random, extent), randomCoordinate(random, extent));
+            obstacles.add(obstacle);
+            gameObjects.add(obstacle);
+        }
+        for(int i = 0; i < missileCount; i++) {
+            Ship owner = shipCount > 0 ? ships.get(random.nextInt(shipCount)) : null;
+            // long range, so a running world doesn't run out of missiles
+            Missile missile = missilePool.obtain(null, 0.2f, 0.5f, 4f * extent, 0.3f, owner);
+            missile.setPosition(randomCoordinate(random, extent), 0, randomCoordinate(random, extent));
+            missile.setRotation(0, random.nextFloat() * 360f, 0);
+            missile.setOrigin(missile.getX(), missile.getY(), missile.getZ());
+            missiles.add(missile);
+            gameObjects.add(missile);
+        }
+        scene.addAll(gameObjects);
+        player = shipCount > 0 ? ships.get(0) : null;
+        if(player != null) {
+            camera.init(player, 7f);
+        }
+        setupBroadphase();
+        setupSystems();
+    }
 
-        // create hud
-        setupHud();
+    /**
+     * Gives the transform slots of all objects back to the store, so a new world doesn't make it grow.
+     * The objects must not be used afterwards.
+     */
+    private void releaseWorld() {
+        if(gameObjects == null) {
+            return;
+        }
+        scene.clear();
+        shipGrid.clear();
+        obstacleGrid.clear();
+        world.clear();
+        shipContacts.clear();
+        ships = new Registry<>();
+        obstacles = new Registry<>();
+        missiles = new Registry<>();
+        for(int i = 0; i < gameObjects.size(); i++) {
+            GameObject gameObject = gameObjects.get(i);
+            if(gameObject instanceof Missile) {
+                missilePool.recycle((Missile) gameObject);
+            } else if(gameObject != scene.getSkyBox()) {
+                gameObject.release();
+            }
+        }
+        gameObjects.clear();
+        // a dead player is no longer in the list
+        if(player != null) {
+            player.release();
+            player = null;
+        }
+    }
 
+    private void setupBroadphase() {
+        shipGrid.clear();
+        obstacleGrid.clear();
+        world.clear();
+        shipContacts.clear();
+        for(int i = 0; i < ships.size(); i++) {
+            shipGrid.insert(ships.get(i));
+            world.insert(ships.get(i));
+        }
+        for(int i = 0; i < obstacles.size(); i++) {
+            obstacleGrid.insert(obstacles.get(i));
+            world.insert(obstacles.get(i));
+        }
+    }
+
+    private static float randomCoordinate(Random random, float extent) {
+        return (random.nextFloat() * 2f - 1f) * extent;
+    }
+
+    int getMissileCount() {
+        return missiles.size();
+    }
+
+    private void setupSystems() {
+        systems = new TaskGraph();
+        systems.add("storeTransforms", this::storeTransforms, new String[] { SLOTS }, new String[] { SHIP_TRANSFORMS, MISSILE_TRANSFORMS, OBSTACLE_TRANSFORMS, CAMERA });
+        systems.add("moveCamera", this::moveCamera, new String[] { SLOTS, SHIP_TRANSFORMS }, new String[] { CAMERA });
+        systems.add("updateAll", this::updateAll, new String[] { SLOTS }, new String[] { SHIP_TRANSFORMS, MISSILE_TRANSFORMS, OBSTACLE_TRANSFORMS, GAME_OBJECTS });
+        // the hud, the grids and the tree with the enemy aim only read the moved ships, so they overlap
+        if(!headless) {
+            systems.add("updateHud", this::updateHud, new String[] { SLOTS, SHIP_TRANSFORMS, SHIPS }, new String[] { HUD });
+        }
+        systems.add("updateGrids", this::updateGrids, new String[] { SLOTS, SHIP_TRANSFORMS, OBSTACLE_TRANSFORMS, SHIPS, OBSTACLES }, new String[] { GRIDS });
+        systems.add("updateTree", this::updateTree, new String[] { SLOTS, SHIP_TRANSFORMS, OBSTACLE_TRANSFORMS, SHIPS, OBSTACLES }, new String[] { TREE });
+        systems.add("aimEnemies", this::aimEnemies, new String[] { SLOTS, SHIP_TRANSFORMS, SHIPS }, new String[] { TREE, AIM });
+        // firing allocates transform slots, so it waits for everything before and blocks everything after
+        systems.add("fireWeapons", this::fireWeapons, new String[] { SHIP_TRANSFORMS, AIM }, new String[] { SLOTS, MISSILE_TRANSFORMS, GAME_OBJECTS, SHIPS, MISSILES });
+        systems.add("updateShips", this::updateShips, new String[] { SLOTS, OBSTACLES, OBSTACLE_TRANSFORMS }, new String[] { SHIP_TRANSFORMS, SHIPS, GRIDS, TREE });
+        systems.add("updateMissiles", this::updateMissiles, new String[] { SLOTS, SHIP_TRANSFORMS, OBSTACLE_TRANSFORMS, MISSILE_TRANSFORMS }, new String[] { MISSILES, OBSTACLES, SHIPS, GRIDS, TREE });
+        // despawning gives transform slots back to the store
+        systems.add("applyCommands", this::applyCommands, new String[0], new String[] { SLOTS, GAME_OBJECTS, SCENE });
     }
 
     private void setupLights() {
@@ -241,10 +488,25 @@ public class DemoGame implements IGameLogic {
         hud.getGameObjects().get(4).setPosition(5, 100, 0);
         hud.addStatusText("Player Rotation: " + ((Ship) player).getAngle());
         hud.getGameObjects().get(5).setPosition(5, 160, 0);
+        updateHud();
+    }
+
+    @Override
+    public void registerMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+        for (Job job : systems.getJobs()) {
+            metrics.register(job.getTimings());
+        }
     }
 
     @Override
     public void input(Window window, MouseInput mouseInput) {
+        boolean metricsKeyPressed = window.isKeyPressed(GLFW_KEY_F3);
+        if (metricsKeyPressed && !metricsKeyDown) {
+            metricsVisible = !metricsVisible;
+        }
+        metricsKeyDown = metricsKeyPressed;
+
         if(player.getLifeState() == ALIVE) {
             if (window.isKeyPressed(GLFW_KEY_W) && !((Ship) player).boostActive()) {
                 player.accelerate();
@@ -260,16 +522,21 @@ public class DemoGame implements IGameLogic {
                 Missile missile = ((Ship) player).shootFrontal();
                 gameObjects.add(missile);
                 missiles.add(missile);
+                scene.add(missile);
             }
             if (window.isKeyPressed(GLFW_KEY_Q) && ((Ship) player).isLeftBroadsideReady() && ((Ship) player).weaponsActive()) {
-                List<Missile> missileListLeft = ((Ship) player).shootLeftSide();
-                gameObjects.addAll(missileListLeft);
-                missiles.addAll(missileListLeft);
+                ((Ship) player).shootLeftSide(volley);
+                gameObjects.addAll(volley);
+                missiles.addAll(volley);
+                scene.addAll(volley);
+                volley.clear();
             }
             if (window.isKeyPressed(GLFW_KEY_E) && ((Ship) player).isRightBroadsideReady() && ((Ship) player).weaponsActive()) {
-                List<Missile> missileListRight = ((Ship) player).shootRightSide();
-                gameObjects.addAll(missileListRight);
-                missiles.addAll(missileListRight);
+                ((Ship) player).shootRightSide(volley);
+                gameObjects.addAll(volley);
+                missiles.addAll(volley);
+                scene.addAll(volley);
+                volley.clear();
             }
             if (window.isKeyPressed(GLFW_KEY_LEFT_SHIFT) && ((Ship) player).isBoostReady()) {
                 ((Ship) player).boost();
@@ -286,128 +553,368 @@ public class DemoGame implements IGameLogic {
 
     @Override
     public void update(float interval, MouseInput mouseInput) {
-        camera.moveAlong(mouseInput);
-        scene.getSkyBox().moveAlong(player.getPosition().x, player.getPosition().y, player.getPosition().z);
+        this.mouseInput = mouseInput;
+        jobSystem.run(systems);
+    }
 
-        updateAll();
-        controlEnemies();
-        updateShips();
-        updateMissiles();
-        hud.setStatusText("Player Durability: " + player.getDurability() * 100, (TextItem) hud.getGameObjects().get(1));
-        hud.setStatusText("Player Shield: " + ((Ship) player).getShield() * 100, (TextItem) hud.getGameObjects().get(2));
-        hud.setStatusText("Player Speed: " + player.getSpeed() * 100, (TextItem) hud.getGameObjects().get(3));
-        hud.setStatusText("Player Fuel: " + ((Ship) player).getFuel() * 100, (TextItem) hud.getGameObjects().get(4));
-        hud.setStatusText("Player Rotation: " + ((Ship) player).getAngle(), (TextItem) hud.getGameObjects().get(5));
+    private void storeTransforms() {
+        // one sweep over the packed transforms instead of visiting every object
+        transforms.storePreviousTransforms();
+        camera.storePreviousTransform();
+    }
 
-        scene.getGameMeshes().clear();
-        scene.setGameObjectsMeshes(gameObjects);
+    private void moveCamera() {
+        camera.moveAlong(mouseInput);
+        if(scene.getSkyBox() != null) {
+            scene.getSkyBox().moveAlong(player.getX(), player.getY(), player.getZ());
+        }
+    }
+
+    private void updateHud() {
+        // the text meshes are rebuilt on the render thread, see render()
+        hudTexts[0] = "Player Durability: " + player.getDurability() * 100;
+        hudTexts[1] = "Player Shield: " + ((Ship) player).getShield() * 100;
+        hudTexts[2] = "Player Speed: " + player.getSpeed() * 100;
+        hudTexts[3] = "Player Fuel: " + ((Ship) player).getFuel() * 100;
+        hudTexts[4] = "Player Rotation: " + ((Ship) player).getAngle();
     }
 
     private void updateAll() {
-        for(int i = 0; i < gameObjects.size(); i++) {
-            gameObjects.get(i).moveForward();
-            if(gameObjects.get(i).getLifeState() == DEAD) {
-                gameObjects.remove(i);
-                i--;
+        int chunks = JobSystem.chunkCount(gameObjects.size(), UPDATE_CHUNK_SIZE);
+        if(chunkCommands.length < chunks) {
+            CommandBuffer[] grown = new CommandBuffer[chunks];
+            System.arraycopy(chunkCommands, 0, grown, 0, chunkCommands.length);
+            for(int c = chunkCommands.length; c < chunks; c++) {
+                grown[c] = new CommandBuffer();
             }
+            chunkCommands = grown;
+        }
+
+        // every chunk only touches its own game objects, removals are deferred to applyCommands
+        jobSystem.parallelFor(gameObjects.size(), UPDATE_CHUNK_SIZE, (chunk, from, to) -> {
+            CommandBuffer chunkBuffer = chunkCommands[chunk];
+            for(int i = from; i < to; i++) {
+                GameObject gameObject = gameObjects.get(i);
+                gameObject.moveForward();
+                if(gameObject.getLifeState() == DEAD) {
+                    chunkBuffer.despawn(i);
+                }
+            }
+        });
+    }
+
+    // the scene follows the list, so it never has to be rebuilt
+    private void applyCommands() {
+        for(CommandBuffer buffer : chunkCommands) {
+            updateScene(buffer);
+        }
+        updateScene(commands);
+        CommandBuffer.applyAll(gameObjects, chunkCommands);
+        CommandBuffer.applyAll(gameObjects, commands);
+    }
+
+    private void updateScene(CommandBuffer buffer) {
+        for(int d = 0; d < buffer.getDespawnCount(); d++) {
+            GameObject gameObject = gameObjects.get(buffer.getDespawn(d));
+            scene.remove(gameObject);
+            // spent missiles aren't referenced anywhere else, so the weapons can reuse them
+            if(gameObject instanceof Missile) {
+                missilePool.recycle((Missile) gameObject);
+            } else if(gameObject != player) {
+                // the hud, the camera and the input still read the player after its death
+                gameObject.release();
+            }
+        }
+        for(int s = 0; s < buffer.getSpawnCount(); s++) {
+            scene.add(buffer.getSpawn(s));
+        }
+    }
+
+    // moves ships and obstacles to the grid cells of their new positions
+    private void updateGrids() {
+        for(int i = 0; i < ships.size(); i++) {
+            shipGrid.update(ships.get(i));
+        }
+        for(int i = 0; i < obstacles.size(); i++) {
+            obstacleGrid.update(obstacles.get(i));
         }
     }
 
+    // the same for the tree leaves, separate so the enemies can aim while the grids are updated
+    private void updateTree() {
+        for(int i = 0; i < ships.size(); i++) {
+            world.update(ships.get(i));
+        }
+        for(int i = 0; i < obstacles.size(); i++) {
+            world.update(obstacles.get(i));
+        }
+    }
+
+    // overlaps are reported to the contact manager, which calls ShipContactListener on changes
     private void updateShips() {
+        shipContacts.beginTick();
         for(int i = 0; i < ships.size(); i++) {
             Ship currentShip = ships.get(i);
-            for(int j = 0; j < obstacles.size(); j++) {
-                Obstacle currentObstacle = obstacles.get(j);
+            obstacleCandidates.clear();
+            obstacleGrid.query(currentShip, obstacleCandidates);
+            for(int j = 0; j < obstacleCandidates.size(); j++) {
+                Obstacle currentObstacle = obstacleCandidates.get(j);
                 if(currentShip.collides(currentObstacle)) {
-                    currentShip.moveBackward();
-                    currentShip.steer(currentShip.evade(currentObstacle));
+                    shipContacts.report(currentShip, currentObstacle);
                 }
             }
-            for(int s = 0; s < ships.size(); s++) {
-                Ship currentEnemy = ships.get(s);
-                if(s != i && currentShip.collides(currentEnemy)) {
-                    currentShip.moveBackward();
-                    currentShip.steer(currentShip.evade(currentEnemy));
+            shipCandidates.clear();
+            shipGrid.query(currentShip, shipCandidates);
+            for(int s = 0; s < shipCandidates.size(); s++) {
+                Ship currentEnemy = shipCandidates.get(s);
+                if(currentEnemy != currentShip && currentShip.collides(currentEnemy)) {
+                    shipContacts.report(currentShip, currentEnemy);
                 }
             }
+            shipGrid.update(currentShip);
+            world.update(currentShip);
         }
+        shipContacts.endTick();
     }
 
-    private void updateMissiles() {
-        for(int j = 0; j < missiles.size(); j++) {
-            Missile currentMissile = missiles.get(j);
-            if(currentMissile.isExhausted()) {
-                currentMissile.destroy();
-                missiles.remove(currentMissile);
-                j--;
+    /**
+     * A ship turns away once when it runs into something and keeps backing off while they still overlap.
+     */
+    private static class ShipContactListener implements ContactManager.ContactListener {
+
+        @Override
+        public void onEnter(GameObject first, GameObject second) {
+            Ship ship = (Ship) first;
+            ship.moveBackward();
+            ship.steer(ship.evade(second));
+        }
+
+        @Override
+        public void onStay(GameObject first, GameObject second, int ticks) {
+            ((Ship) first).moveBackward();
+        }
+    }
+
+    /**
+     * Missiles are resolved in two phases. Hits are searched in parallel without changing anything, then
+     * damage and removals are applied in missile order, which gives the same result as resolving one
+     * missile after the other.
+     */
+    void updateMissiles() {
+        int size = missiles.size();
+        int chunks = JobSystem.chunkCount(size, MISSILE_CHUNK_SIZE);
+        if(combatBuffers.length < chunks) {
+            int grownFrom = combatBuffers.length;
+            combatBuffers = Arrays.copyOf(combatBuffers, chunks);
+            targetBatches = Arrays.copyOf(targetBatches, chunks);
+            for(int c = grownFrom; c < chunks; c++) {
+                combatBuffers[c] = new CombatBuffer();
+                targetBatches[c] = new CollisionBatch();
             }
-            for (int k = 0; k < obstacles.size(); k++) {
-                Obstacle currentObstacle = obstacles.get(k);
-                if(currentMissile.collides(currentObstacle) && currentMissile.getLifeState() == ALIVE) {
-                    currentObstacle.dealDamage(currentMissile.getDamage());
-                    currentMissile.destroy();
-                    missiles.remove(currentMissile);
-                    j--;
+        }
+
+        jobSystem.parallelFor(size, MISSILE_CHUNK_SIZE, (chunk, from, to) -> {
+            CombatBuffer buffer = combatBuffers[chunk];
+            CollisionBatch targets = targetBatches[chunk];
+            for(int j = from; j < to; j++) {
+                Missile currentMissile = missiles.get(j);
+                if(currentMissile.isExhausted()) {
+                    buffer.expire(currentMissile);
+                    continue;
                 }
-                if(currentObstacle.getDurability() <= 0) {
-                    currentObstacle.destroy();
-                    obstacles.remove(currentObstacle);
-                    k--;
+                GameObject hit = findTarget(currentMissile, targets);
+                if(hit != null) {
+                    buffer.hit(currentMissile, hit);
                 }
             }
-            for (int s = 0; s < ships.size(); s++) {
-                Ship currentShip = ships.get(s);
-                if(currentMissile.collides(currentShip) && !currentMissile.isOwner(currentShip) && currentMissile.getLifeState() == ALIVE) {
-                    currentShip.dealDamage(currentMissile.getDamage());
-                    currentMissile.destroy();
-                    missiles.remove(currentMissile);
-                    j--;
+        });
+
+        for(int c = 0; c < chunks; c++) {
+            applyHits(combatBuffers[c]);
+        }
+    }
+
+    // earliest contact of the missile along its last step, null if there is none
+    private GameObject findTarget(Missile currentMissile, CollisionBatch targets) {
+        // sweep the missile over its whole step, so fast missiles can't pass through thin targets
+        Vector3f from = currentMissile.getPreviousPosition();
+        Vector3f to = currentMissile.getPosition();
+        float centerX = (from.x + to.x) / 2f;
+        float centerZ = (from.z + to.z) / 2f;
+        float sweepRadius = currentMissile.getRadius() + (float) Math.sqrt((to.x - from.x) * (to.x - from.x) + (to.z - from.z) * (to.z - from.z)) / 2f;
+
+        // obstacles go first, so they win ties like before. friendly ships are filtered out by the grid
+        int layer = currentMissile.getCollisionLayer();
+        int mask = currentMissile.getCollisionMask();
+        targets.clear();
+        obstacleGrid.query(centerX, centerZ, sweepRadius, layer, mask, currentMissile.getTeam(), targets);
+        shipGrid.query(centerX, centerZ, sweepRadius, layer, mask, currentMissile.getTeam(), targets);
+
+        // missiles can't hit their own ship
+        int first = targets.firstImpact(from.x, from.z, to.x, to.z, currentMissile.getRadius(), currentMissile.getOwner());
+        return first < 0 ? null : targets.get(first);
+    }
+
+    private void applyHits(CombatBuffer buffer) {
+        for(int i = 0; i < buffer.size(); i++) {
+            Missile currentMissile = buffer.getMissile(i);
+            GameObject hit = buffer.getTarget(i);
+            // destroyed by an earlier missile of this tick, the grids no longer have it, so look again
+            if(hit != null && hit.getLifeState() == DEAD) {
+                hit = findTarget(currentMissile, missileTargets);
+                if(hit == null) {
+                    continue;
                 }
-                if(currentShip.getDurability() <= 0) {
-                        currentShip.destroy();
-                        ships.remove(currentShip);
-                        s--;
+            }
+            currentMissile.destroy();
+            missiles.remove(currentMissile);
+            if(hit == null) {
+                continue;
+            }
+
+            hit.dealDamage(currentMissile.getDamage());
+            if(hit.getDurability() <= 0) {
+                hit.destroy();
+                if(hit instanceof Ship) {
+                    ships.remove((Ship) hit);
+                    shipGrid.remove((Ship) hit);
+                } else {
+                    obstacles.remove((Obstacle) hit);
+                    obstacleGrid.remove((Obstacle) hit);
                 }
+                world.remove(hit);
             }
         }
+        buffer.clear();
     }
 
-    private void controlEnemies() {
+    // firing only changes the missiles and the weapons of the firing ship, so every ship can aim first
+    private void aimEnemies() {
+        shooters.clear();
+        shots.clear();
         for (int e = 0; e < ships.size(); e++) {
             Ship currentShip = ships.get(e);
             if(currentShip != player) {
-                if(player.getPosition().z - currentShip.getPosition().z < 0 && currentShip.isLeftBroadsideReady()) {
-                    List<Missile> missileList = currentShip.shootLeftSide();
-                    gameObjects.addAll(missileList);
-                    missiles.addAll(missileList);
-                } else if (player.getPosition().z - currentShip.getPosition().z > 0 && currentShip.isRightBroadsideReady()) {
-                    List<Missile> missileList = currentShip.shootRightSide();
-                    gameObjects.addAll(missileList);
-                    missiles.addAll(missileList);
+                // attack the closest ship of another team
+                GameObject target = world.nearest(currentShip, object -> object instanceof Ship && isEnemy(currentShip, object), nearestScratch);
+                if(target == null) {
+                    continue;
+                }
+                if(target.getZ() - currentShip.getZ() < 0 && currentShip.isLeftBroadsideReady()) {
+                    shooters.add(currentShip);
+                    shots.add(Shot.LEFT);
+                } else if (target.getZ() - currentShip.getZ() > 0 && currentShip.isRightBroadsideReady()) {
+                    shooters.add(currentShip);
+                    shots.add(Shot.RIGHT);
                 } else {
                     if(currentShip.isFrontReady()) {
-                        Missile missile = currentShip.shootFrontal();
-                        gameObjects.add(missile);
-                        missiles.add(missile);
+                        shooters.add(currentShip);
+                        shots.add(Shot.FRONT);
                     }
                 }
             }
         }
     }
 
+    private void fireWeapons() {
+        for (int i = 0; i < shooters.size(); i++) {
+            Ship currentShip = shooters.get(i);
+            switch (shots.get(i)) {
+                case LEFT:
+                    currentShip.shootLeftSide(volley);
+                    commands.spawnAll(volley);
+                    missiles.addAll(volley);
+                    volley.clear();
+                    break;
+                case RIGHT:
+                    currentShip.shootRightSide(volley);
+                    commands.spawnAll(volley);
+                    missiles.addAll(volley);
+                    volley.clear();
+                    break;
+                default:
+                    Missile missile = currentShip.shootFrontal();
+                    commands.spawn(missile);
+                    missiles.add(missile);
+            }
+        }
+        shooters.clear();
+        shots.clear();
+    }
+
+    private static boolean isEnemy(GameObject ship, GameObject other) {
+        if(ship == other) {
+            return false;
+        }
+        return ship.getTeam() == CollisionFilter.NO_TEAM || ship.getTeam() != other.getTeam();
+    }
+
+    @Override
+    public void snapshot(RenderSnapshot snapshot) {
+        snapshot.setCamera(camera);
+        snapshot.setSceneLight(scene.getSceneLight());
+        snapshot.setSkyBox(scene.getSkyBox());
+        List<Scene.MeshBucket> buckets = scene.getBuckets();
+        for (int i = 0; i < buckets.size(); i++) {
+            snapshot.addBucket(buckets.get(i));
+        }
+        for (String hudText : hudTexts) {
+            snapshot.addHudText(hudText);
+        }
+    }
+
     @Override
-    public void render(Window window) {
+    public void render(Window window, RenderSnapshot snapshot, float alpha) {
+        // from the first frame on the simulation owns the transforms, the render thread only reads snapshots
+        transforms.exclude(Thread.currentThread());
         hud.updateSize(window);
-        renderer.render(window, camera, scene, hud);
+        List<String> texts = snapshot.getHudTexts();
+        for (int i = 0; i < texts.size(); i++) {
+            TextItem textItem = (TextItem) hud.getGameObjects().get(i + 1);
+            if (!texts.get(i).equals(textItem.getText())) {
+                hud.setStatusText(texts.get(i), textItem);
+            }
+        }
+        updateMetricsHud();
+        renderer.render(window, snapshot, alpha, hud);
+    }
+
+    private void updateMetricsHud() {
+        if (!metricsVisible || metrics == null) {
+            hud.hideMetrics();
+            return;
+        }
+        long time = System.nanoTime();
+        if (time - metricsRefreshTime < METRICS_REFRESH_TIME) {
+            return;
+        }
+        metricsRefreshTime = time;
+        metricsLines.clear();
+        for (TimingHistogram histogram : metrics.getHistograms()) {
+            metricsLines.add(String.format("%s  p50 %.2f  p99 %.2f  max %.2f ms", histogram.getName(),
+                    histogram.getP50() / 1_000_000f, histogram.getP99() / 1_000_000f, histogram.getMax() / 1_000_000f));
+        }
+        try {
+            hud.showMetrics(metricsLines);
+        } catch (Exception e) {
+            e.printStackTrace();
+            metricsVisible = false;
+        }
     }
 
     @Override
     public void cleanup() {
+        jobSystem.shutdown();
+        if(headless) {
+            releaseWorld();
+            return;
+        }
         renderer.cleanup();
-        Map<Mesh, List<GameObject>> mapMeshes = scene.getGameMeshes();
-        for (Mesh mesh : mapMeshes.keySet()) {
-            mesh.cleanup();
+        List<Scene.MeshBucket> buckets = scene.getBuckets();
+        for (int i = 0; i < buckets.size(); i++) {
+            buckets.get(i).getMesh().cleanup();
         }
+        releaseWorld();
         hud.cleanup();
     }
 }
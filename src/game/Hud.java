@@ -9,6 +9,7 @@ import engine.Window;
 import engine.graph.FontTexture;
 import engine.objects.GameObject;
 import engine.objects.TextItem;
+import engine.objects.TransformStore;
 import org.joml.Vector4f;
 
 public class Hud implements IHud {
@@ -17,21 +18,30 @@ public class Hud implements IHud {
 
     private static final String CHARSET = "ISO-8859-1";
 
+    // the text items live on the render thread, apart from the simulated objects
+    private final TransformStore transforms;
+
     private final List<GameObject> gameObjects;
 
     private final TextItem statusTextItem;
 
     private FontTexture fontTexture;
 
+    private final List<TextItem> metricsItems;
+
+    private boolean metricsVisible;
+
     public Hud(String statusText) throws Exception {
         fontTexture = new FontTexture(FONT, CHARSET);
-        this.statusTextItem = new TextItem(statusText, fontTexture);
+        transforms = new TransformStore(16);
+        this.statusTextItem = new TextItem(transforms, statusText, fontTexture);
         this.statusTextItem.setPosition(0, 0, 0);
         this.statusTextItem.getMesh().getMaterial().setAmbientColour(new Vector4f(1, 1, 1, 1));
 
         // Create list that holds the items that compose the HUD
         gameObjects = new ArrayList<>();
         gameObjects.add(statusTextItem);
+        metricsItems = new ArrayList<>();
     }
 
     public void setStatusText(String statusText) {
@@ -39,7 +49,7 @@ public class Hud implements IHud {
     }
 
     public void addStatusText(String statusText) throws Exception {
-        TextItem textItem = new TextItem(statusText, fontTexture);
+        TextItem textItem = new TextItem(transforms, statusText, fontTexture);
         gameObjects.add(textItem);
     }
 
@@ -47,6 +57,38 @@ public class Hud implements IHud {
         textItem.setText(statusText);
     }
 
+    /**
+     * Show one text line per metric below the status texts.
+     * @param lines lines to show, items are only rebuilt if their text changed
+     */
+    public void showMetrics(List<String> lines) throws Exception {
+        while (metricsItems.size() < lines.size()) {
+            TextItem textItem = new TextItem(transforms, "", fontTexture);
+            textItem.setPosition(5, 220 + metricsItems.size() * 25, 0);
+            metricsItems.add(textItem);
+            if (metricsVisible) {
+                gameObjects.add(textItem);
+            }
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            TextItem textItem = metricsItems.get(i);
+            if (!lines.get(i).equals(textItem.getText())) {
+                textItem.setText(lines.get(i));
+            }
+        }
+        if (!metricsVisible) {
+            gameObjects.addAll(metricsItems);
+            metricsVisible = true;
+        }
+    }
+
+    public void hideMetrics() {
+        if (metricsVisible) {
+            gameObjects.removeAll(metricsItems);
+            metricsVisible = false;
+        }
+    }
+
     @Override
     public List<GameObject> getGameObjects() {
         return gameObjects;
@@ -10,7 +10,16 @@ public class Main {
         try {
             boolean vSync = true;
             IGameLogic gameLogic = new DemoGame();
-            Engine engine = new Engine("AndromedaEngine", 1200, 960, vSync, gameLogic);
+            Engine engine;
+            if (args.length > 0 && args[0].equals("--headless")) {
+                engine = new Engine(gameLogic);
+                engine.setPrintMetrics(true);
+                if (args.length > 1) {
+                    engine.setMaxTicks(Long.parseLong(args[1]));
+                }
+            } else {
+                engine = new Engine("AndromedaEngine", 1200, 960, vSync, gameLogic);
+            }
             engine.start();
         } catch (Exception e) {
             e.printStackTrace();
@@ -18,4 +27,4 @@ public class Main {
         }
     }
 
-}
\ No newline at end of file
+}